@@ -92,7 +92,7 @@ public class BlockClickHandler implements PlayerControllerEventListener {
             // Else this is a normal block being placed.
         }
 
-        boolean insideRegion = controller.getCurRegion().isInsideRegion(blockX, blockY, blockZ);
+        boolean insideRegion = controller.getCurRegion().getMaskedSnapshot().isInsideRegion(blockX, blockY, blockZ);
         if ((buildMode == BuildMode.INSIDE && !insideRegion) ||
                 (buildMode == BuildMode.OUTSIDE && insideRegion)) {
             controller.notifyDenyClick();
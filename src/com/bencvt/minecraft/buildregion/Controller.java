@@ -224,6 +224,10 @@ public class Controller implements LSDEventListener {
         return inputManager;
     }
 
+    public ShapeManager getShapeManager() {
+        return shapeManager;
+    }
+
     public String getModTitle() {
         return modTitle;
     }
@@ -0,0 +1,76 @@
+package com.bencvt.minecraft.buildregion.region;
+
+import java.util.BitSet;
+
+/**
+ * A compiled RegionCuboid, with the corners already normalized to integer
+ * bounds.
+ * 
+ * @author bencvt
+ */
+public final class CuboidSnapshot extends RegionSnapshot {
+    private final int lowerX;
+    private final int lowerY;
+    private final int lowerZ;
+    private final int upperX;
+    private final int upperY;
+    private final int upperZ;
+
+    CuboidSnapshot(RegionCuboid cuboid) {
+        lowerX = (int) cuboid.getLowerCornerReadonly().getX();
+        lowerY = (int) cuboid.getLowerCornerReadonly().getY();
+        lowerZ = (int) cuboid.getLowerCornerReadonly().getZ();
+        upperX = (int) cuboid.getUpperCornerReadonly().getX();
+        upperY = (int) cuboid.getUpperCornerReadonly().getY();
+        upperZ = (int) cuboid.getUpperCornerReadonly().getZ();
+    }
+
+    @Override
+    public boolean isInsideRegion(double x, double y, double z) {
+        // Same as flooring the position and comparing it to the inclusive
+        // bounds, without the floor.
+        return (x >= lowerX && x < upperX + 1.0 &&
+                y >= lowerY && y < upperY + 1.0 &&
+                z >= lowerZ && z < upperZ + 1.0);
+    }
+
+    @Override
+    public boolean isInsideRegion(int x, int y, int z) {
+        return (x >= lowerX && x <= upperX &&
+                y >= lowerY && y <= upperY &&
+                z >= lowerZ && z <= upperZ);
+    }
+
+    @Override
+    public boolean getBounds(int[] lower, int[] upper) {
+        lower[0] = lowerX;
+        lower[1] = lowerY;
+        lower[2] = lowerZ;
+        upper[0] = upperX;
+        upper[1] = upperY;
+        upper[2] = upperZ;
+        return true;
+    }
+
+    @Override
+    public boolean getRowSpan(int y, int z, int[] span) {
+        if (y < lowerY || y > upperY || z < lowerZ || z > upperZ) {
+            return false;
+        }
+        span[0] = lowerX;
+        span[1] = upperX;
+        return true;
+    }
+
+    @Override
+    public void getInsideRow(int x, int y, int z, int length, BitSet result) {
+        result.clear(0, length);
+        if (y >= lowerY && y <= upperY && z >= lowerZ && z <= upperZ) {
+            final int from = Math.max(0, lowerX - x);
+            final int to = Math.min(length, upperX - x + 1);
+            if (from < to) {
+                result.set(from, to);
+            }
+        }
+    }
+}
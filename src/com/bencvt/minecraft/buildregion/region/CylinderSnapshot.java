@@ -0,0 +1,226 @@
+package com.bencvt.minecraft.buildregion.region;
+
+import java.util.BitSet;
+
+import libshapedraw.primitive.Axis;
+
+/**
+ * A compiled RegionCylinder, with the axis already resolved to the
+ * coordinates that go with each radius, and the squared radii and the
+ * bounds along the axis already worked out.
+ * 
+ * @author bencvt
+ */
+public final class CylinderSnapshot extends RegionSnapshot {
+    private final Axis axis;
+    private final double axisLower;
+    private final double axisUpper;
+    private final double originA;
+    private final double originB;
+    private final double radiusSquaredA;
+    private final double radiusSquaredB;
+
+    CylinderSnapshot(RegionCylinder cylinder) {
+        axis = cylinder.getAxis();
+        final double halfHeight = cylinder.getHeight() / 2.0;
+        final double origin = cylinder.getOriginReadonly().getComponent(axis);
+        axisLower = origin - halfHeight;
+        axisUpper = origin + halfHeight;
+        originA = cylinder.getOriginReadonly().getComponent(cylinder.getRadiusAxisA());
+        originB = cylinder.getOriginReadonly().getComponent(cylinder.getRadiusAxisB());
+        radiusSquaredA = cylinder.getRadiusA() * cylinder.getRadiusA();
+        radiusSquaredB = cylinder.getRadiusB() * cylinder.getRadiusB();
+    }
+
+    @Override
+    public boolean isInsideRegion(double x, double y, double z) {
+        final double coord;
+        final double da;
+        final double db;
+        if (axis == Axis.X) {
+            coord = x;
+            da = ((int) y) - originA;
+            db = ((int) z) - originB;
+        } else if (axis == Axis.Y) {
+            coord = y;
+            da = ((int) z) - originA;
+            db = ((int) x) - originB;
+        } else {
+            coord = z;
+            da = ((int) x) - originA;
+            db = ((int) y) - originB;
+        }
+        // See SphereSnapshot regarding exactness.
+        return coord >= axisLower && coord < axisUpper &&
+                da*da / radiusSquaredA + db*db / radiusSquaredB < 1.0;
+    }
+
+    @Override
+    public boolean isInsideRegion(int x, int y, int z) {
+        final double coord;
+        final double da;
+        final double db;
+        if (axis == Axis.X) {
+            coord = x;
+            da = y - originA;
+            db = z - originB;
+        } else if (axis == Axis.Y) {
+            coord = y;
+            da = z - originA;
+            db = x - originB;
+        } else {
+            coord = z;
+            da = x - originA;
+            db = y - originB;
+        }
+        return coord >= axisLower && coord < axisUpper &&
+                da*da / radiusSquaredA + db*db / radiusSquaredB < 1.0;
+    }
+
+    @Override
+    public boolean getBounds(int[] lower, int[] upper) {
+        final int axisLowerBlock = (int) Math.ceil(axisLower);
+        final int axisUpperBlock = (int) Math.ceil(axisUpper) - 1;
+        if (axisLowerBlock > axisUpperBlock) {
+            return false;
+        }
+
+        // The ellipse is widest along each radius through its center
+        // block(s), so the bounds are the chords through there.
+        final double centerA = Math.ceil(originA) - originA;
+        final double centerB = Math.ceil(originB) - originB;
+        final int[] spanA = new int[2];
+        final int[] spanB = new int[2];
+        if (!getChordSpan(originA, radiusSquaredA, centerB*centerB / radiusSquaredB, spanA) ||
+                !getChordSpan(originB, radiusSquaredB, centerA*centerA / radiusSquaredA, spanB)) {
+            return false;
+        }
+
+        final int axisIndex;
+        final int indexA;
+        final int indexB;
+        if (axis == Axis.X) {
+            axisIndex = 0;
+            indexA = 1;
+            indexB = 2;
+        } else if (axis == Axis.Y) {
+            axisIndex = 1;
+            indexA = 2;
+            indexB = 0;
+        } else {
+            axisIndex = 2;
+            indexA = 0;
+            indexB = 1;
+        }
+        lower[axisIndex] = axisLowerBlock;
+        upper[axisIndex] = axisUpperBlock;
+        lower[indexA] = spanA[0];
+        upper[indexA] = spanA[1];
+        lower[indexB] = spanB[0];
+        upper[indexB] = spanB[1];
+        return true;
+    }
+
+    @Override
+    public boolean getRowSpan(int y, int z, int[] span) {
+        if (axis == Axis.X) {
+            // The row runs along the axis: it's either cut off by the caps
+            // or entirely outside.
+            final double da = y - originA;
+            final double db = z - originB;
+            if (!(da*da / radiusSquaredA + db*db / radiusSquaredB < 1.0)) {
+                return false;
+            }
+            final int lower = (int) Math.ceil(axisLower);
+            final int upper = (int) Math.ceil(axisUpper) - 1;
+            if (lower > upper) {
+                return false;
+            }
+            span[0] = lower;
+            span[1] = upper;
+            return true;
+        }
+        // The row runs across the axis: it's a chord of the ellipse.
+        final double coord = axis == Axis.Y ? y : z;
+        if (!(coord >= axisLower && coord < axisUpper)) {
+            return false;
+        }
+        if (axis == Axis.Y) {
+            final double da = z - originA;
+            return getChordSpan(originB, radiusSquaredB, da*da / radiusSquaredA, span);
+        } else {
+            final double db = y - originB;
+            return getChordSpan(originA, radiusSquaredA, db*db / radiusSquaredB, span);
+        }
+    }
+
+    /**
+     * Find the x-span of the ellipse's chord, given the ellipse term that's
+     * constant along the row. Solved directly, then nudged to agree exactly
+     * with the block test. See SphereSnapshot.getRowSpan.
+     */
+    private static boolean getChordSpan(double origin, double radiusSquared, double term, int[] span) {
+        final int low = (int) Math.floor(origin);
+        final int high = (int) Math.ceil(origin);
+        if (!isInsideChord(high, origin, radiusSquared, term)) {
+            return false;
+        }
+        final double halfWidth = Math.sqrt(Math.max(0.0, (1.0 - term) * radiusSquared));
+        int upper = Math.max(high, (int) Math.floor(origin + halfWidth));
+        while (isInsideChord(upper + 1, origin, radiusSquared, term)) {
+            upper++;
+        }
+        while (!isInsideChord(upper, origin, radiusSquared, term)) {
+            upper--;
+        }
+        span[0] = low - (upper - high);
+        span[1] = upper;
+        return true;
+    }
+
+    private static boolean isInsideChord(int x, double origin, double radiusSquared, double term) {
+        final double d = x - origin;
+        return d*d / radiusSquared + term < 1.0;
+    }
+
+    @Override
+    public void getInsideRow(int x, int y, int z, int length, BitSet result) {
+        if (axis == Axis.X) {
+            // The row runs along the axis, so the ellipse test is the same
+            // for the whole row.
+            final double da = y - originA;
+            final double db = z - originB;
+            if (!(da*da / radiusSquaredA + db*db / radiusSquaredB < 1.0)) {
+                result.clear(0, length);
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                final double coord = x + i;
+                result.set(i, coord >= axisLower && coord < axisUpper);
+            }
+            return;
+        }
+        // The row runs across the axis, so the axis test is the same for the
+        // whole row, and so is one of the ellipse terms.
+        final double coord = axis == Axis.Y ? y : z;
+        if (!(coord >= axisLower && coord < axisUpper)) {
+            result.clear(0, length);
+            return;
+        }
+        if (axis == Axis.Y) {
+            final double da = z - originA;
+            final double termA = da*da / radiusSquaredA;
+            for (int i = 0; i < length; i++) {
+                final double db = x + i - originB;
+                result.set(i, termA + db*db / radiusSquaredB < 1.0);
+            }
+        } else {
+            final double db = y - originB;
+            final double termB = db*db / radiusSquaredB;
+            for (int i = 0; i < length; i++) {
+                final double da = x + i - originA;
+                result.set(i, da*da / radiusSquaredA + termB < 1.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.bencvt.minecraft.buildregion.region;
+
+/**
+ * A region snapshot that answers block queries from a precomputed bitmask
+ * of every block in the region's AABB, rather than from the region's
+ * geometry. Worthwhile for curved regions (spheres and cylinders) that are
+ * queried over and over, e.g. on every click.
+ * <p>
+ * The mask has two levels to keep memory bounded for large regions: the
+ * AABB is split into BRICK_SIZE^3 bricks, and only bricks that are partly
+ * inside the region store any bits. Bricks that are entirely inside or
+ * entirely outside are just flagged as such.
+ * <p>
+ * Immutable, like any snapshot. Queries with non-integer coordinates are
+ * passed on to the region's regular snapshot.
+ * 
+ * @author bencvt
+ */
+public final class MaskedSnapshot extends RegionSnapshot {
+    /** AABBs with more blocks than this aren't masked. */
+    public static final int MAX_BLOCKS = 1 << 22;
+    public static final int BRICK_SIZE = 8;
+    private static final int BRICK_SHIFT = 3;
+    private static final int BRICK_MASK = BRICK_SIZE - 1;
+    private static final int BRICK_EMPTY = -1;
+    private static final int BRICK_FULL = -2;
+
+    private final RegionSnapshot snapshot;
+    private final int lowerX;
+    private final int lowerY;
+    private final int lowerZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int bricksX;
+    private final int bricksZ;
+    /**
+     * For each brick, BRICK_EMPTY, BRICK_FULL, or the index of its first
+     * long in bits.
+     */
+    private final int[] bricks;
+    /**
+     * BRICK_SIZE longs per partly-filled brick, one per y. Bit
+     * (z * BRICK_SIZE + x) of each long is set if the block is inside.
+     */
+    private final long[] bits;
+
+    /**
+     * @return a masked snapshot of the region, or the region's regular
+     *         snapshot if its AABB is too large or infinite.
+     */
+    static RegionSnapshot create(RegionBase region) {
+        final RegionSnapshot snapshot = region.getSnapshot();
+        final SpanList spans = region.getSpanList();
+        if (spans == null) {
+            return snapshot;
+        }
+        final long volume = ((long) spans.getUpperX() - spans.getLowerX() + 1L) *
+                ((long) spans.getUpperY() - spans.getLowerY() + 1L) *
+                ((long) spans.getUpperZ() - spans.getLowerZ() + 1L);
+        if (volume > MAX_BLOCKS) {
+            return snapshot;
+        }
+        return new MaskedSnapshot(snapshot, spans);
+    }
+
+    private MaskedSnapshot(RegionSnapshot snapshot, SpanList spans) {
+        this.snapshot = snapshot;
+        lowerX = spans.getLowerX();
+        lowerY = spans.getLowerY();
+        lowerZ = spans.getLowerZ();
+        sizeX = spans.getUpperX() - lowerX + 1;
+        sizeY = spans.getUpperY() - lowerY + 1;
+        sizeZ = spans.getUpperZ() - lowerZ + 1;
+        bricksX = (sizeX + BRICK_MASK) >> BRICK_SHIFT;
+        final int bricksY = (sizeY + BRICK_MASK) >> BRICK_SHIFT;
+        bricksZ = (sizeZ + BRICK_MASK) >> BRICK_SHIFT;
+
+        // Rasterize each row's span into temporary per-brick bits, a brick
+        // at a time.
+        final long[][] brickBits = new long[bricksX * bricksY * bricksZ][];
+        final int[] span = new int[2];
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                if (!spans.getRowSpan(lowerY + y, lowerZ + z, span)) {
+                    continue;
+                }
+                final int end = span[1] - lowerX + 1;
+                int x = span[0] - lowerX;
+                while (x < end) {
+                    final int brickEnd = Math.min(end, (x | BRICK_MASK) + 1);
+                    final int brick = getBrickIndex(x, y, z);
+                    if (brickBits[brick] == null) {
+                        brickBits[brick] = new long[BRICK_SIZE];
+                    }
+                    final long runBits = ((1L << (brickEnd - x)) - 1L) << getBitIndex(x, z);
+                    brickBits[brick][y & BRICK_MASK] |= runBits;
+                    x = brickEnd;
+                }
+            }
+        }
+
+        // Then pack only the partly-filled bricks.
+        bricks = new int[brickBits.length];
+        int mixed = 0;
+        for (int i = 0; i < brickBits.length; i++) {
+            if (brickBits[i] == null) {
+                bricks[i] = BRICK_EMPTY;
+            } else if (isFull(brickBits[i])) {
+                bricks[i] = BRICK_FULL;
+                brickBits[i] = null;
+            } else {
+                bricks[i] = mixed * BRICK_SIZE;
+                mixed++;
+            }
+        }
+        bits = new long[mixed * BRICK_SIZE];
+        for (int i = 0; i < brickBits.length; i++) {
+            if (brickBits[i] != null) {
+                System.arraycopy(brickBits[i], 0, bits, bricks[i], BRICK_SIZE);
+            }
+        }
+    }
+
+    private static boolean isFull(long[] brick) {
+        for (long b : brick) {
+            if (b != -1L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getBrickIndex(int x, int y, int z) {
+        return ((y >> BRICK_SHIFT) * bricksZ + (z >> BRICK_SHIFT)) * bricksX + (x >> BRICK_SHIFT);
+    }
+
+    private static int getBitIndex(int x, int z) {
+        return ((z & BRICK_MASK) << BRICK_SHIFT) | (x & BRICK_MASK);
+    }
+
+    @Override
+    public boolean isInsideRegion(double x, double y, double z) {
+        return snapshot.isInsideRegion(x, y, z);
+    }
+
+    @Override
+    public boolean isInsideRegion(int x, int y, int z) {
+        x -= lowerX;
+        y -= lowerY;
+        z -= lowerZ;
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            return false;
+        }
+        final int brick = bricks[getBrickIndex(x, y, z)];
+        if (brick < 0) {
+            return brick == BRICK_FULL;
+        }
+        return (bits[brick + (y & BRICK_MASK)] & (1L << getBitIndex(x, z))) != 0L;
+    }
+
+    @Override
+    public boolean getBounds(int[] lower, int[] upper) {
+        return snapshot.getBounds(lower, upper);
+    }
+
+    @Override
+    public boolean getRowSpan(int y, int z, int[] span) {
+        // Solving for the span directly is cheaper than scanning the bits.
+        return snapshot.getRowSpan(y, z, span);
+    }
+
+    /** @return the approximate memory used by the mask. */
+    public long getByteSize() {
+        return 32L + bricks.length * 4L + bits.length * 8L;
+    }
+}
@@ -0,0 +1,99 @@
+package com.bencvt.minecraft.buildregion.region;
+
+import java.util.BitSet;
+
+import libshapedraw.primitive.Axis;
+
+/**
+ * A compiled RegionPlane, with the coordinate along the axis already
+ * truncated to an integer.
+ * 
+ * @author bencvt
+ */
+public final class PlaneSnapshot extends RegionSnapshot {
+    private final Axis axis;
+    private final int coord;
+
+    PlaneSnapshot(RegionPlane plane) {
+        axis = plane.getAxis();
+        coord = (int) plane.getCoord();
+    }
+
+    @Override
+    public boolean isInsideRegion(double x, double y, double z) {
+        if (axis == Axis.X) {
+            return coord == (int) x;
+        } else if (axis == Axis.Y) {
+            return coord == (int) y;
+        } else if (axis == Axis.Z) {
+            return coord == (int) z;
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public boolean isInsideRegion(int x, int y, int z) {
+        if (axis == Axis.X) {
+            return coord == x;
+        } else if (axis == Axis.Y) {
+            return coord == y;
+        } else if (axis == Axis.Z) {
+            return coord == z;
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public boolean getBounds(int[] lower, int[] upper) {
+        final int i;
+        if (axis == Axis.X) {
+            i = 0;
+        } else if (axis == Axis.Y) {
+            i = 1;
+        } else if (axis == Axis.Z) {
+            i = 2;
+        } else {
+            throw new IllegalStateException();
+        }
+        // Infinite in every direction except along the axis.
+        for (int j = 0; j < 3; j++) {
+            lower[j] = j == i ? coord : Integer.MIN_VALUE;
+            upper[j] = j == i ? coord : Integer.MAX_VALUE;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean getRowSpan(int y, int z, int[] span) {
+        if (axis == Axis.X) {
+            span[0] = coord;
+            span[1] = coord;
+            return true;
+        } else if (axis == Axis.Y || axis == Axis.Z) {
+            if (coord != (axis == Axis.Y ? y : z)) {
+                return false;
+            }
+            // The plane is infinite along the row.
+            span[0] = Integer.MIN_VALUE;
+            span[1] = Integer.MAX_VALUE;
+            return true;
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public void getInsideRow(int x, int y, int z, int length, BitSet result) {
+        result.clear(0, length);
+        if (axis == Axis.X) {
+            if (coord >= x && coord - x < length) {
+                result.set(coord - x);
+            }
+        } else if (isInsideRegion(x, y, z)) {
+            // The whole row is in the plane, or none of it is.
+            result.set(0, length);
+        }
+    }
+}
@@ -18,6 +18,9 @@ public abstract class RegionBase {
 
     private final Vector3 origin;
     private Axis axis;
+    private RegionSnapshot snapshot;
+    private RegionSnapshot maskedSnapshot;
+    private SpanList spanList;
 
     protected RegionBase(ReadonlyVector3 origin, Axis axis) {
         if (axis == null) {
@@ -56,18 +59,41 @@ public abstract class RegionBase {
     }
 
     /**
-     * @return true if the position (x,y,z) is inside this region
+     * @return a new compiled copy of this region. Only called when the
+     *         region has been modified since the last snapshot.
      */
-    public abstract boolean isInsideRegion(double x, double y, double z);
+    protected abstract RegionSnapshot compileSnapshot();
+
+    /**
+     * @return true if block queries on this region are expensive enough to
+     *         be worth precomputing a bitmask for (see MaskedSnapshot).
+     */
+    protected boolean isMaskWorthwhile() {
+        return false;
+    }
 
     public abstract double getSize();
 
     /**
      * Get the axis-aligned minimum bounding box around this region.
+     * For regions made of whole blocks, the corners are the inclusive
+     * lower and upper blocks (see getBlockBounds).
      * @return true if bounds were set, false if this region is infinite
      */
     public abstract boolean getAABB(Vector3 lower, Vector3 upper);
 
+    /**
+     * Get the box spanned by this region's dimensions, in the region's own
+     * units, e.g. the origin plus or minus the radii. This is what
+     * RegionFactory converts between region types, so that converting back
+     * and forth keeps the dimensions. Unlike getAABB it may extend past the
+     * blocks that are actually inside.
+     * @return true if bounds were set, false if this region is infinite
+     */
+    public boolean getExtents(Vector3 lower, Vector3 upper) {
+        return getAABB(lower, upper);
+    }
+
     /**
      * @return the unit restriction applied to the specified axis.
      */
@@ -79,6 +105,106 @@ public abstract class RegionBase {
     // Accessors and mutators
     // ========
 
+    /**
+     * @return true if the position (x,y,z) is inside this region. For many
+     *         queries in a row, call getSnapshot once and query that instead.
+     */
+    public final boolean isInsideRegion(double x, double y, double z) {
+        return getSnapshot().isInsideRegion(x, y, z);
+    }
+
+    /**
+     * @return true if the block at (x,y,z) is inside this region. Always the
+     *         same as the double version, but with no conversions.
+     */
+    public final boolean isInsideRegion(int x, int y, int z) {
+        return getSnapshot().isInsideRegion(x, y, z);
+    }
+
+    /**
+     * Get the exact inclusive bounds of the blocks inside this region: the
+     * smallest box for which isInsideRegion is false everywhere outside.
+     * See RegionSnapshot.getBounds.
+     * 
+     * @return false if this region doesn't contain any blocks at all.
+     */
+    public final boolean getBlockBounds(int[] lower, int[] upper) {
+        return getSnapshot().getBounds(lower, upper);
+    }
+
+    /**
+     * Helper for child classes to implement getAABB using getBlockBounds.
+     * A region with no blocks at all gets an empty box at its origin.
+     */
+    protected final void getBlockAABB(Vector3 lower, Vector3 upper) {
+        final int[] lowerBlock = new int[3];
+        final int[] upperBlock = new int[3];
+        if (getBlockBounds(lowerBlock, upperBlock)) {
+            lower.set(lowerBlock[0], lowerBlock[1], lowerBlock[2]);
+            upper.set(upperBlock[0], upperBlock[1], upperBlock[2]);
+        } else {
+            Units.WHOLE.clamp(lower.set(getOriginReadonly()));
+            upper.set(lower);
+        }
+    }
+
+    /**
+     * @return an immutable snapshot of this region as it is now, compiled
+     *         for fast membership queries. The same instance is returned
+     *         until the region is modified.
+     */
+    public final RegionSnapshot getSnapshot() {
+        if (snapshot == null) {
+            snapshot = compileSnapshot();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the same as getSnapshot, except that if this region type
+     *         benefits from it (and isn't too large) block queries are
+     *         answered from a precomputed bitmask. Use this rather than
+     *         getSnapshot for regions that will be queried many times
+     *         before being modified again.
+     */
+    public final RegionSnapshot getMaskedSnapshot() {
+        if (maskedSnapshot == null) {
+            maskedSnapshot = isMaskWorthwhile() ? MaskedSnapshot.create(this) : getSnapshot();
+        }
+        return maskedSnapshot;
+    }
+
+    /**
+     * @return the span of inside blocks for every x-row of this region's
+     *         AABB, or null if the region is infinite. The same instance is
+     *         returned until the region is modified.
+     */
+    public final SpanList getSpanList() {
+        if (spanList == null) {
+            final Vector3 lower = new Vector3();
+            final Vector3 upper = new Vector3();
+            if (!getAABB(lower, upper)) {
+                return null;
+            }
+            Units.WHOLE.clamp(lower);
+            Units.WHOLE.clamp(upper);
+            spanList = new SpanList(getSnapshot(),
+                    (int) lower.getX(), (int) lower.getY(), (int) lower.getZ(),
+                    (int) upper.getX(), (int) upper.getY(), (int) upper.getZ());
+        }
+        return spanList;
+    }
+
+    /**
+     * Child classes must call this method whenever the region is modified,
+     * other than via the methods defined here.
+     */
+    protected final void invalidateSnapshot() {
+        snapshot = null;
+        maskedSnapshot = null;
+        spanList = null;
+    }
+
     public final boolean isRegionType(Class<? extends RegionBase> type) {
         return this != DEFAULT_REGION && type.isInstance(this);
     }
@@ -94,18 +220,21 @@ public abstract class RegionBase {
     public final RegionBase setOriginCoord(Axis axis, double value) {
         origin.setComponent(axis, value);
         onOriginUpdate();
+        invalidateSnapshot();
         return this;
     }
 
     public final RegionBase setOriginCoords(ReadonlyVector3 newOrigin) {
         origin.set(newOrigin);
         onOriginUpdate();
+        invalidateSnapshot();
         return this;
     }
 
     public final RegionBase addOriginCoord(Axis axis, double amount) {
         origin.addComponent(axis, amount);
         onOriginUpdate();
+        invalidateSnapshot();
         return this;
     }
 
@@ -118,6 +247,7 @@ public abstract class RegionBase {
             throw new IllegalArgumentException();
         }
         this.axis = axis;
+        invalidateSnapshot();
         return this;
     }
 
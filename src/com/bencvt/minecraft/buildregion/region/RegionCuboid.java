@@ -47,6 +47,7 @@ public class RegionCuboid extends RegionBase {
 
     private void resize(double sizeX, double sizeY, double sizeZ) {
         upperCorner.set(lowerCorner).add(sizeX - atom, sizeY - atom, sizeZ - atom);
+        invalidateSnapshot();
     }
 
     @Override
@@ -80,14 +81,9 @@ public class RegionCuboid extends RegionBase {
     }
 
     @Override
-    public boolean isInsideRegion(double x, double y, double z) {
+    protected RegionSnapshot compileSnapshot() {
         normalize();
-        x = getUnits(Axis.X).clamp(x);
-        y = getUnits(Axis.Y).clamp(y);
-        z = getUnits(Axis.Z).clamp(z);
-        return (x >= lowerCorner.getX() && x <= upperCorner.getX() &&
-                y >= lowerCorner.getY() && y <= upperCorner.getY() &&
-                z >= lowerCorner.getZ() && z <= upperCorner.getZ());
+        return new CuboidSnapshot(this);
     }
 
     @Override
@@ -114,6 +110,7 @@ public class RegionCuboid extends RegionBase {
         if (amount >= 0.0 || upperCorner.getComponent(axis) > lowerCorner.getComponent(axis)) {
             upperCorner.addComponent(axis, amount);
             normalize();
+            invalidateSnapshot();
             return true;
         }
         return false;
@@ -179,6 +176,7 @@ public class RegionCuboid extends RegionBase {
                 this.lowerCorner.getY() + getUnits(Axis.Y).clampAtom(sizeY) - atom,
                 this.lowerCorner.getZ() + getUnits(Axis.Z).clampAtom(sizeZ) - atom);
         normalize();
+        invalidateSnapshot();
         return this;
     }
 }
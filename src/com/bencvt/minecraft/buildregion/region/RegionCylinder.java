@@ -48,24 +48,13 @@ public class RegionCylinder extends RegionBase {
     }
 
     @Override
-    public boolean isInsideRegion(double x, double y, double z) {
-        ReadonlyVector3 o = getOriginReadonly();
-        double halfHeight = getHeight() / 2.0;
-        double rA = getRadiusA();
-        double rB = getRadiusB();
-        boolean axisOk;
-        boolean ellipseOk;
-        if (getAxis() == Axis.X) {
-            axisOk = x >= o.getX() - halfHeight && x <= o.getX() + halfHeight;
-            ellipseOk = Math.pow(y - rA, 2.0) + Math.pow(z - rB, 2.0) < 1.0;
-        } else if (getAxis() == Axis.Y) {
-            axisOk = y >= o.getY() - halfHeight && y <= o.getY() + halfHeight;
-            ellipseOk = Math.pow(x - rA, 2.0) + Math.pow(z - rB, 2.0) < 1.0;
-        } else {
-            axisOk = z >= o.getZ() - halfHeight && z <= o.getZ() + halfHeight;
-            ellipseOk = Math.pow(x - rA, 2.0) + Math.pow(y - rB, 2.0) < 1.0;
-        }
-        return axisOk && ellipseOk;
+    protected RegionSnapshot compileSnapshot() {
+        return new CylinderSnapshot(this);
+    }
+
+    @Override
+    protected boolean isMaskWorthwhile() {
+        return true;
     }
 
     @Override
@@ -75,9 +64,16 @@ public class RegionCylinder extends RegionBase {
 
     @Override
     public boolean getAABB(Vector3 lower, Vector3 upper) {
+        // The origin plus or minus the radii can overshoot the blocks that
+        // are actually inside by up to a block on each side.
+        getBlockAABB(lower, upper);
+        return true;
+    }
+
+    @Override
+    public boolean getExtents(Vector3 lower, Vector3 upper) {
         lower.set(getOriginReadonly()).subtract(halfHeightAndRadii);
         upper.set(getOriginReadonly()).add(halfHeightAndRadii);
-        // TODO: fix
         return true;
     }
 
@@ -94,6 +90,7 @@ public class RegionCylinder extends RegionBase {
         }
         double prev = halfHeightAndRadii.getComponent(axis);
         Units.HALF.clampAtom(halfHeightAndRadii.addComponent(axis, amount));
+        invalidateSnapshot();
         return halfHeightAndRadii.getComponent(axis) != prev;
     }
 
@@ -129,6 +126,7 @@ public class RegionCylinder extends RegionBase {
     public RegionBase setAxis(Axis axis) {
         super.setAxis(axis);
         onOriginUpdate();
+        invalidateSnapshot();
         return this;
     }
 
@@ -137,6 +135,7 @@ public class RegionCylinder extends RegionBase {
     }
     public RegionCylinder setHeight(double height) {
         halfHeightAndRadii.setComponent(getAxis(), Units.HALF.clampAtom(height * 0.5));
+        invalidateSnapshot();
         return this;
     }
 
@@ -145,6 +144,7 @@ public class RegionCylinder extends RegionBase {
     }
     public RegionCylinder setRadiusA(double radiusA) {
         halfHeightAndRadii.setComponent(getAxis().next(), Units.HALF.clampAtom(radiusA));
+        invalidateSnapshot();
         return this;
     }
 
@@ -153,6 +153,7 @@ public class RegionCylinder extends RegionBase {
     }
     public RegionCylinder setRadiusB(double radiusB) {
         halfHeightAndRadii.setComponent(getAxis().next().next(), Units.HALF.clampAtom(radiusB));
+        invalidateSnapshot();
         return this;
     }
 
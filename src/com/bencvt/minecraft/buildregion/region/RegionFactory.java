@@ -36,7 +36,7 @@ public class RegionFactory {
         // Convert proto to a cuboid using half units.
         Vector3 lower = new Vector3();
         Vector3 upper = new Vector3();
-        proto.getAABB(lower, upper);
+        proto.getExtents(lower, upper);
         final Axis protoAxis = proto.getAxis();
         RegionCuboid aabb = new RegionCuboid(lower, upper, protoAxis) {
             @Override
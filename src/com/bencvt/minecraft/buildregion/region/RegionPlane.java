@@ -36,16 +36,8 @@ public class RegionPlane extends RegionBase {
     }
 
     @Override
-    public boolean isInsideRegion(double x, double y, double z) {
-        if (getAxis() == Axis.X) {
-            return (int) getOriginReadonly().getX() == (int) x;
-        } else if (getAxis() == Axis.Y) {
-            return (int) getOriginReadonly().getY() == (int) y;
-        } else if (getAxis() == Axis.Z) {
-            return (int) getOriginReadonly().getZ() == (int) z;
-        } else {
-            throw new IllegalStateException();
-        }
+    protected RegionSnapshot compileSnapshot() {
+        return new PlaneSnapshot(this);
     }
 
     @Override
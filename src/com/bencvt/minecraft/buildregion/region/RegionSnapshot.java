@@ -0,0 +1,115 @@
+package com.bencvt.minecraft.buildregion.region;
+
+import java.util.BitSet;
+
+/**
+ * An immutable, compiled copy of a region, for answering membership queries
+ * as quickly as possible. Everything that doesn't depend on the queried
+ * position (squared radii, integer bounds, the axis) is worked out once, when
+ * the snapshot is created.
+ * <p>
+ * Snapshots are created by RegionBase.getSnapshot and are only recompiled
+ * after the region is modified. Being immutable, they're safe to query from
+ * any thread.
+ * <p>
+ * Besides single positions, snapshots can test whole batches of block
+ * positions at once: a row of consecutive blocks along the x axis, or an
+ * array of positions packed with packPosition. Either way the result is a
+ * BitSet, one bit per position. Child classes override the row query to
+ * hoist everything that's constant along the row out of the loop.
+ * <p>
+ * Consumers that only need to know which blocks of each row are inside
+ * (meshing, counting, scanning the world) should use getRowSpan instead,
+ * which solves for the row's bounds directly without testing any blocks.
+ * See also SpanList, which caches the spans of every row.
+ * 
+ * @author bencvt
+ */
+public abstract class RegionSnapshot {
+    /**
+     * @return true if the position (x,y,z) is inside the region, exactly the
+     *         same as RegionBase.isInsideRegion at the time the snapshot was
+     *         taken.
+     */
+    public abstract boolean isInsideRegion(double x, double y, double z);
+
+    /**
+     * @return true if the block at (x,y,z) is inside the region. Always the
+     *         same as the double version, but with no conversions.
+     */
+    public boolean isInsideRegion(int x, int y, int z) {
+        return isInsideRegion((double) x, (double) y, (double) z);
+    }
+
+    /**
+     * For each of the length blocks starting at (x,y,z) and going along the
+     * x axis, set the matching bit of result (starting at bit 0) if the
+     * block is inside the region, or clear it otherwise.
+     */
+    public void getInsideRow(int x, int y, int z, int length, BitSet result) {
+        for (int i = 0; i < length; i++) {
+            result.set(i, isInsideRegion(x + i, y, z));
+        }
+    }
+
+    /**
+     * Find the smallest box of blocks containing every block inside the
+     * region. The bounds are exact: each face of the box touches at least
+     * one block for which isInsideRegion is true.
+     * 
+     * @param lower set to the box's inclusive lower corner (x, y, z), with
+     *        Integer.MIN_VALUE for any axis the region is unbounded along.
+     * @param upper set to the box's inclusive upper corner, with
+     *        Integer.MAX_VALUE for any axis the region is unbounded along.
+     * @return false if the region doesn't contain any blocks at all, in
+     *         which case lower and upper are left untouched.
+     */
+    public abstract boolean getBounds(int[] lower, int[] upper);
+
+    /**
+     * Find the blocks of the x-row at (y,z) that are inside the region.
+     * Every region type is convex, so these are always a single span of
+     * consecutive blocks. The span is worked out from the region's geometry
+     * (e.g. by solving the sphere's equation for x) and then checked against
+     * isInsideRegion at its ends, so it always agrees with the block test.
+     * <p>
+     * Never allocates, so it's fine to call for every row of a large region.
+     * 
+     * @param span set to the span's inclusive lower and upper x coordinates,
+     *        or Integer.MIN_VALUE/MAX_VALUE if the span is unbounded in that
+     *        direction. Left untouched if the row is empty.
+     * @return true if any blocks of the row are inside the region.
+     */
+    public abstract boolean getRowSpan(int y, int z, int[] span);
+
+    /**
+     * For each of the first count positions (see packPosition), set the
+     * matching bit of result if the block is inside the region, or clear it
+     * otherwise.
+     */
+    public void getInside(long[] positions, int count, BitSet result) {
+        for (int i = 0; i < count; i++) {
+            final long p = positions[i];
+            result.set(i, isInsideRegion(unpackX(p), unpackY(p), unpackZ(p)));
+        }
+    }
+
+    // ========
+    // Packed block positions: 21 bits (signed) per coordinate
+    // ========
+
+    private static final long PACK_MASK = (1L << 21) - 1L;
+
+    public static long packPosition(int x, int y, int z) {
+        return ((x & PACK_MASK) << 42) | ((y & PACK_MASK) << 21) | (z & PACK_MASK);
+    }
+    public static int unpackX(long packed) {
+        return (int) (packed << 1 >> 43);
+    }
+    public static int unpackY(long packed) {
+        return (int) (packed << 22 >> 43);
+    }
+    public static int unpackZ(long packed) {
+        return (int) (packed << 43 >> 43);
+    }
+}
@@ -39,11 +39,13 @@ public class RegionSphere extends RegionBase {
     }
 
     @Override
-    public boolean isInsideRegion(double x, double y, double z) {
-        return    Math.pow(((int) x) - getOriginReadonly().getX(), 2.0) / Math.pow(radii.getX(), 2.0)
-                + Math.pow(((int) y) - getOriginReadonly().getY(), 2.0) / Math.pow(radii.getY(), 2.0)
-                + Math.pow(((int) z) - getOriginReadonly().getZ(), 2.0) / Math.pow(radii.getZ(), 2.0)
-                < 1.0;
+    protected RegionSnapshot compileSnapshot() {
+        return new SphereSnapshot(this);
+    }
+
+    @Override
+    protected boolean isMaskWorthwhile() {
+        return true;
     }
 
     @Override
@@ -53,9 +55,16 @@ public class RegionSphere extends RegionBase {
 
     @Override
     public boolean getAABB(Vector3 lower, Vector3 upper) {
+        // The origin plus or minus the radii can overshoot the blocks that
+        // are actually inside by up to a block on each side.
+        getBlockAABB(lower, upper);
+        return true;
+    }
+
+    @Override
+    public boolean getExtents(Vector3 lower, Vector3 upper) {
         lower.set(getOriginReadonly()).subtract(radii);
         upper.set(getOriginReadonly()).add(radii);
-        // TODO: fix
         return true;
     }
 
@@ -68,6 +77,7 @@ public class RegionSphere extends RegionBase {
     public boolean expand(Axis axis, double amount) {
         double prev = radii.getComponent(axis);
         Units.HALF.clampAtom(radii.addComponent(axis, amount));
+        invalidateSnapshot();
         return radii.getComponent(axis) != prev;
     }
 
@@ -94,6 +104,7 @@ public class RegionSphere extends RegionBase {
     }
     public RegionSphere setRadiusX(double radiusX) {
         radii.setX(Math.max(0.5, Units.HALF.clamp(radiusX)));
+        invalidateSnapshot();
         return this;
     }
 
@@ -102,6 +113,7 @@ public class RegionSphere extends RegionBase {
     }
     public RegionSphere setRadiusY(double radiusY) {
         radii.setY(Math.max(0.5, Units.HALF.clamp(radiusY)));
+        invalidateSnapshot();
         return this;
     }
 
@@ -110,6 +122,7 @@ public class RegionSphere extends RegionBase {
     }
     public RegionSphere setRadiusZ(double radiusZ) {
         radii.setZ(Math.max(0.5, Units.HALF.clamp(radiusZ)));
+        invalidateSnapshot();
         return this;
     }
 
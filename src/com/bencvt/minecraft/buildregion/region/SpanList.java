@@ -0,0 +1,116 @@
+package com.bencvt.minecraft.buildregion.region;
+
+/**
+ * The inside blocks of a finite region, stored as one span of x coordinates
+ * for each x-row (y,z) of the region's AABB (see RegionSnapshot.getRowSpan),
+ * clipped to the AABB. Memory use scales with the area of the AABB's y/z
+ * face rather than with its volume, and anything that works a row at a
+ * time can read the spans directly instead of testing blocks.
+ * <p>
+ * Created by RegionBase.getSpanList and only recomputed after the region is
+ * modified. Immutable.
+ * 
+ * @author bencvt
+ */
+public final class SpanList {
+    private final int lowerX;
+    private final int upperX;
+    private final int lowerY;
+    private final int lowerZ;
+    private final int sizeY;
+    private final int sizeZ;
+    /**
+     * Two ints for each row, indexed by <code>(y * sizeZ + z) * 2</code>
+     * relative to the lower corner: the span's inclusive lower and upper x
+     * coordinates. Empty rows have a lower bound greater than the upper.
+     */
+    private final int[] spans;
+
+    SpanList(RegionSnapshot snapshot, int lowerX, int lowerY, int lowerZ, int upperX, int upperY, int upperZ) {
+        if (lowerX > upperX || lowerY > upperY || lowerZ > upperZ) {
+            throw new IllegalArgumentException();
+        }
+        this.lowerX = lowerX;
+        this.upperX = upperX;
+        this.lowerY = lowerY;
+        this.lowerZ = lowerZ;
+        sizeY = upperY - lowerY + 1;
+        sizeZ = upperZ - lowerZ + 1;
+        spans = new int[sizeY * sizeZ * 2];
+        final int[] span = new int[2];
+        int i = 0;
+        for (int y = lowerY; y <= upperY; y++) {
+            for (int z = lowerZ; z <= upperZ; z++) {
+                if (snapshot.getRowSpan(y, z, span)) {
+                    spans[i] = Math.max(lowerX, span[0]);
+                    spans[i + 1] = Math.min(upperX, span[1]);
+                } else {
+                    spans[i] = 0;
+                    spans[i + 1] = -1;
+                }
+                i += 2;
+            }
+        }
+    }
+
+    public int getLowerX() {
+        return lowerX;
+    }
+
+    public int getLowerY() {
+        return lowerY;
+    }
+
+    public int getLowerZ() {
+        return lowerZ;
+    }
+
+    public int getUpperX() {
+        return upperX;
+    }
+
+    public int getUpperY() {
+        return lowerY + sizeY - 1;
+    }
+
+    public int getUpperZ() {
+        return lowerZ + sizeZ - 1;
+    }
+
+    /**
+     * @param span set to the inclusive lower and upper x coordinates of the
+     *        inside blocks of the x-row at (y,z). Left untouched if the row
+     *        is empty or outside the AABB.
+     * @return true if any blocks of the row are inside the region.
+     */
+    public boolean getRowSpan(int y, int z, int[] span) {
+        y -= lowerY;
+        z -= lowerZ;
+        if (y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            return false;
+        }
+        final int i = (y * sizeZ + z) * 2;
+        if (spans[i] > spans[i + 1]) {
+            return false;
+        }
+        span[0] = spans[i];
+        span[1] = spans[i + 1];
+        return true;
+    }
+
+    /** @return the number of blocks inside the region. */
+    public long getBlockCount() {
+        long count = 0;
+        for (int i = 0; i < spans.length; i += 2) {
+            if (spans[i] <= spans[i + 1]) {
+                count += (long) spans[i + 1] - spans[i] + 1L;
+            }
+        }
+        return count;
+    }
+
+    /** @return the approximate memory used by the spans. */
+    public long getByteSize() {
+        return 32L + spans.length * 4L;
+    }
+}
@@ -0,0 +1,139 @@
+package com.bencvt.minecraft.buildregion.region;
+
+import java.util.BitSet;
+
+/**
+ * A compiled RegionSphere, with the squared radii already worked out.
+ * 
+ * @author bencvt
+ */
+public final class SphereSnapshot extends RegionSnapshot {
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+    private final double radiusSquaredX;
+    private final double radiusSquaredY;
+    private final double radiusSquaredZ;
+
+    SphereSnapshot(RegionSphere sphere) {
+        originX = sphere.getOriginReadonly().getX();
+        originY = sphere.getOriginReadonly().getY();
+        originZ = sphere.getOriginReadonly().getZ();
+        radiusSquaredX = sphere.getRadiusX() * sphere.getRadiusX();
+        radiusSquaredY = sphere.getRadiusY() * sphere.getRadiusY();
+        radiusSquaredZ = sphere.getRadiusZ() * sphere.getRadiusZ();
+    }
+
+    @Override
+    public boolean isInsideRegion(double x, double y, double z) {
+        // Origins and radii are in half units, so every square here is
+        // exact. Dividing (rather than multiplying by a reciprocal) keeps the
+        // result identical to RegionSphere's original formula.
+        final double dx = ((int) x) - originX;
+        final double dy = ((int) y) - originY;
+        final double dz = ((int) z) - originZ;
+        return dx*dx / radiusSquaredX + dy*dy / radiusSquaredY + dz*dz / radiusSquaredZ < 1.0;
+    }
+
+    @Override
+    public boolean isInsideRegion(int x, int y, int z) {
+        final double dx = x - originX;
+        final double dy = y - originY;
+        final double dz = z - originZ;
+        return dx*dx / radiusSquaredX + dy*dy / radiusSquaredY + dz*dz / radiusSquaredZ < 1.0;
+    }
+
+    @Override
+    public boolean getBounds(int[] lower, int[] upper) {
+        // The ellipsoid is widest along each axis through its center
+        // block(s), and symmetric around them. If the center isn't inside
+        // (e.g. a 0.5 radius around a half-unit origin), nothing is.
+        final int lowX = (int) Math.floor(originX);
+        final int highX = (int) Math.ceil(originX);
+        final int lowY = (int) Math.floor(originY);
+        final int highY = (int) Math.ceil(originY);
+        final int lowZ = (int) Math.floor(originZ);
+        final int highZ = (int) Math.ceil(originZ);
+        if (!isInsideRegion(highX, highY, highZ)) {
+            return false;
+        }
+        final int reachX = getReach(highX, highY, highZ, 1, 0, 0, radiusSquaredX);
+        final int reachY = getReach(highX, highY, highZ, 0, 1, 0, radiusSquaredY);
+        final int reachZ = getReach(highX, highY, highZ, 0, 0, 1, radiusSquaredZ);
+        lower[0] = lowX - reachX;
+        lower[1] = lowY - reachY;
+        lower[2] = lowZ - reachZ;
+        upper[0] = highX + reachX;
+        upper[1] = highY + reachY;
+        upper[2] = highZ + reachZ;
+        return true;
+    }
+
+    /**
+     * @return how many blocks past the inside block (x,y,z) the region
+     *         extends in the direction (dx,dy,dz). Starts from an estimate
+     *         based on the radius, then steps until it agrees exactly with
+     *         the block test.
+     */
+    private int getReach(int x, int y, int z, int dx, int dy, int dz, double radiusSquared) {
+        int reach = Math.max(0, (int) Math.sqrt(radiusSquared) - 1);
+        while (isInsideRegion(x + (reach + 1) * dx, y + (reach + 1) * dy, z + (reach + 1) * dz)) {
+            reach++;
+        }
+        while (reach > 0 && !isInsideRegion(x + reach * dx, y + reach * dy, z + reach * dz)) {
+            reach--;
+        }
+        return reach;
+    }
+
+    @Override
+    public boolean getRowSpan(int y, int z, int[] span) {
+        final double dy = y - originY;
+        final double dz = z - originZ;
+        final double termY = dy*dy / radiusSquaredY;
+        final double termZ = dz*dz / radiusSquaredZ;
+
+        // The row is symmetric around the center block(s): two of them if
+        // the origin is on a half unit. If those aren't inside, nothing is.
+        final int lowX = (int) Math.floor(originX);
+        final int highX = (int) Math.ceil(originX);
+        if (!isInsideRow(highX, termY, termZ)) {
+            return false;
+        }
+
+        // Solve the ellipse equation for the row's half-width. Rounding
+        // error can put the result a block off in either direction, so
+        // nudge it until it agrees exactly with the block test.
+        final double halfWidth = Math.sqrt(Math.max(0.0, (1.0 - termY - termZ) * radiusSquaredX));
+        int upper = Math.max(highX, (int) Math.floor(originX + halfWidth));
+        while (isInsideRow(upper + 1, termY, termZ)) {
+            upper++;
+        }
+        while (!isInsideRow(upper, termY, termZ)) {
+            upper--;
+        }
+        span[0] = lowX - (upper - highX);
+        span[1] = upper;
+        return true;
+    }
+
+    /** Same as isInsideRegion(int, int, int), with the y and z terms given. */
+    private boolean isInsideRow(int x, double termY, double termZ) {
+        final double dx = x - originX;
+        return dx*dx / radiusSquaredX + termY + termZ < 1.0;
+    }
+
+    @Override
+    public void getInsideRow(int x, int y, int z, int length, BitSet result) {
+        // The y and z terms are the same for the whole row. They're still
+        // added in the same order as above so the results are identical.
+        final double dy = y - originY;
+        final double dz = z - originZ;
+        final double termY = dy*dy / radiusSquaredY;
+        final double termZ = dz*dz / radiusSquaredZ;
+        for (int i = 0; i < length; i++) {
+            final double dx = x + i - originX;
+            result.set(i, dx*dx / radiusSquaredX + termY + termZ < 1.0);
+        }
+    }
+}
@@ -246,8 +246,7 @@ public class GuiScreenDefineRegion extends GuiScreenBase {
         yPos = windowYPosition + windowHeight; // no vertical padding
         buttonList.add(buttonHelp.setWidth(buttonWidth).setPositionXY(xPos, yPos));
         xPos += buttonHelp.getWidth() + 4;
-        // TODO: enable options button once GUI is built
-        //buttonList.add(buttonOptions.setWidth(buttonWidth).setPositionXY(xPos, yPos));
+        buttonList.add(buttonOptions.setWidth(buttonWidth).setPositionXY(xPos, yPos));
         xPos = windowXPosition + windowWidth - buttonDone.setWidth(buttonWidth).getWidth();
         buttonList.add(buttonDone.setPositionXY(xPos, yPos));
         xPos -= buttonUndo.setWidth(buttonWidth).getWidth() + 4;
@@ -450,7 +449,7 @@ public class GuiScreenDefineRegion extends GuiScreenBase {
         if (guiButton == buttonHelp) {
             open(new GuiScreenHelp(this, controller));
         } else if (guiButton == buttonOptions) {
-            open(new GuiScreenOptions(this));
+            open(new GuiScreenOptions(this, controller));
         } else if (guiButton == buttonUndo) {
             // Reset build mode and region to whatever they were when the user
             // opened the gui.
@@ -3,8 +3,16 @@ package com.bencvt.minecraft.buildregion.ui.window;
 import net.minecraft.client.gui.GuiButton;
 import net.minecraft.client.gui.GuiControls;
 
+import com.bencvt.minecraft.buildregion.Controller;
+import com.bencvt.minecraft.buildregion.ui.world.MeshStyle;
+import com.bencvt.minecraft.buildregion.ui.world.ShapeManager;
+
 /**
- * TODO: user-specified options. Possible options:
+ * User-specified options, laid out like Minecraft's own options screen:
+ * clicking an option's button cycles through its values. Changes take effect
+ * immediately and last until Minecraft exits.
+ * <p>
+ * TODO: more options. Possible options:
  * Allow torch placement regardless of region: {YES, NO}
  * Remember region type between sessions: {YES, NO}
  * New region placement: {ORIGIN, CORNER}
@@ -15,15 +23,58 @@ import net.minecraft.client.gui.GuiControls;
  * @author bencvt
  */
 public class GuiScreenOptions extends GuiScreenBase {
+    public static final int OPTION_WIDTH = 150;
+    public static final int OPTION_SPACING = 4;
+    public static final int[] VIEW_DISTANCES = {64, 128, 256, 512};
+    public static final int[] MESH_CACHE_MEGABYTES = {0, 16, 64, 256};
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final ShapeManager shapeManager;
+    private final GuiStandardButton buttonMeshStyle = new GuiStandardButton(this, "");
+    private final GuiStandardButton buttonViewDistance = new GuiStandardButton(this, "");
+    private final GuiStandardButton buttonMeshCache = new GuiStandardButton(this, "");
     private final GuiStandardButton buttonControls = new GuiStandardButton(this, i18n("button.controls"));
     private final GuiStandardButton buttonDone = new GuiStandardButton(this, i18n("button.done"));
 
-    public GuiScreenOptions(GuiScreenBase parentScreen) {
+    public GuiScreenOptions(GuiScreenBase parentScreen, Controller controller) {
         super(parentScreen);
+        shapeManager = controller.getShapeManager();
+        updateButtonTexts();
+    }
+
+    private void updateButtonTexts() {
+        buttonMeshStyle.setText(i18n("option.meshstyle", shapeManager.getMeshStyle()));
+        buttonViewDistance.setText(i18n("option.viewdistance",
+                i18n("blocks", (int) shapeManager.getViewDistance())));
+        final long megabytes = shapeManager.getMeshCacheMaxBytes() / MEGABYTE;
+        buttonMeshCache.setText(i18n("option.meshcache",
+                megabytes == 0 ? i18n("option.off") : i18n("megabytes", megabytes)));
+    }
+
+    /**
+     * @return the first of the ascending values that is greater than
+     *         current, wrapping around to the smallest.
+     */
+    private static int getNextValue(int[] values, long current) {
+        for (int value : values) {
+            if (value > current) {
+                return value;
+            }
+        }
+        return values[0];
     }
 
     @Override
     public void initGui() {
+        // Two columns of option buttons, filled left to right.
+        final GuiStandardButton[] options = {buttonMeshStyle, buttonViewDistance, buttonMeshCache};
+        for (int i = 0; i < options.length; i++) {
+            options[i].setWidth(OPTION_WIDTH).setPositionXY(
+                    width/2 - OPTION_WIDTH - OPTION_SPACING/2 + (i % 2)*(OPTION_WIDTH + OPTION_SPACING),
+                    height/6 + (i / 2)*(options[i].getHeight() + OPTION_SPACING));
+            buttonList.add(options[i]);
+        }
+
         buttonControls.setWidth(150).setPositionXY(width/2 - 152, height - 30);
         buttonList.add(buttonControls);
 
@@ -37,6 +88,17 @@ public class GuiScreenOptions extends GuiScreenBase {
             close();
         } else if (guiButton == buttonControls) {
             open(new GuiControls(this, mc.gameSettings));
+        } else if (guiButton == buttonMeshStyle) {
+            final MeshStyle[] values = MeshStyle.values();
+            shapeManager.setMeshStyle(values[(shapeManager.getMeshStyle().ordinal() + 1) % values.length]);
+            updateButtonTexts();
+        } else if (guiButton == buttonViewDistance) {
+            shapeManager.setViewDistance(getNextValue(VIEW_DISTANCES, (long) shapeManager.getViewDistance()));
+            updateButtonTexts();
+        } else if (guiButton == buttonMeshCache) {
+            shapeManager.setMeshCacheMaxBytes(
+                    getNextValue(MESH_CACHE_MEGABYTES, shapeManager.getMeshCacheMaxBytes() / MEGABYTE) * MEGABYTE);
+            updateButtonTexts();
         }
     }
 }
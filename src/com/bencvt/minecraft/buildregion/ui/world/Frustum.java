@@ -0,0 +1,86 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * The view frustum, extracted from the current OpenGL projection and
+ * modelview matrices. Used to skip drawing things that are off-screen.
+ * <p>
+ * The planes are in the coordinate space of whatever the modelview matrix
+ * was when update was called, so boxes tested against this frustum should
+ * be in that space too.
+ * 
+ * @author bencvt
+ */
+public class Frustum {
+    private final FloatBuffer projection;
+    private final FloatBuffer modelview;
+    private final float[] clip;
+    /** Six planes (left, right, bottom, top, near, far), each a/b/c/d. */
+    private final float[] planes;
+
+    public Frustum() {
+        projection = BufferUtils.createFloatBuffer(16);
+        modelview = BufferUtils.createFloatBuffer(16);
+        clip = new float[16];
+        planes = new float[24];
+    }
+
+    /**
+     * Read the current matrices from OpenGL and recompute the frustum
+     * planes. Must be called from the render thread.
+     */
+    public void update() {
+        projection.clear();
+        modelview.clear();
+        GL11.glGetFloat(GL11.GL_PROJECTION_MATRIX, projection);
+        GL11.glGetFloat(GL11.GL_MODELVIEW_MATRIX, modelview);
+
+        // clip = projection * modelview. OpenGL matrices are column-major.
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                float sum = 0.0F;
+                for (int k = 0; k < 4; k++) {
+                    sum += projection.get(k*4 + row) * modelview.get(col*4 + k);
+                }
+                clip[col*4 + row] = sum;
+            }
+        }
+
+        // Each plane is the sum or difference of the last row of the clip
+        // matrix and one of the others.
+        for (int i = 0; i < 6; i++) {
+            final int row = i / 2;
+            final float sign = i % 2 == 0 ? 1.0F : -1.0F;
+            float a = clip[3] + sign*clip[row];
+            float b = clip[7] + sign*clip[4 + row];
+            float c = clip[11] + sign*clip[8 + row];
+            float d = clip[15] + sign*clip[12 + row];
+            planes[i*4] = a;
+            planes[i*4 + 1] = b;
+            planes[i*4 + 2] = c;
+            planes[i*4 + 3] = d;
+        }
+    }
+
+    /**
+     * @return true if any part of the axis-aligned box might be inside the
+     *         frustum. This is conservative: boxes just outside a corner of
+     *         the frustum may also return true.
+     */
+    public boolean isBoxVisible(double x0, double y0, double z0, double x1, double y1, double z1) {
+        for (int i = 0; i < 24; i += 4) {
+            final float a = planes[i];
+            final float b = planes[i + 1];
+            final float c = planes[i + 2];
+            // Test the corner of the box furthest along the plane's normal.
+            if (a*(a > 0.0F ? x1 : x0) + b*(b > 0.0F ? y1 : y0) + c*(c > 0.0F ? z1 : z0) + planes[i + 3] < 0.0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
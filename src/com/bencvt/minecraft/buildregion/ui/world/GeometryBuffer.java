@@ -0,0 +1,162 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import libshapedraw.MinecraftAccess;
+
+import org.lwjgl.opengl.ARBVertexBufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * A small piece of static geometry (e.g. a cuboid's grid lines) that's
+ * rendered every frame but only changes once in a while.
+ * <p>
+ * The vertices are sent to OpenGL once, the first time they're rendered
+ * after being set: as a VBO if the client supports it, otherwise as a
+ * display list. Either way, each render is a single call rather than
+ * re-sending every vertex.
+ * <p>
+ * Vertices can also be rendered with per-vertex colors (see renderColored).
+ * <p>
+ * Must only be used from the render thread.
+ * 
+ * @author bencvt
+ */
+public class GeometryBuffer {
+    private final int mode;
+    private final VertexArray vertices;
+    /** Whether the VBO or display list (whichever is in use) is up to date. */
+    private boolean uploaded;
+    private int vboId;
+    private int listId;
+    /** Only used by renderColored when VBOs aren't supported. */
+    private FloatBuffer clientVertices;
+
+    /** @param mode the OpenGL primitive type, e.g. GL_LINES or GL_QUADS. */
+    public GeometryBuffer(int mode) {
+        this.mode = mode;
+        vertices = new VertexArray();
+    }
+
+    /**
+     * @return the vertices, to be modified by the caller as needed. Call
+     *         invalidate afterwards.
+     */
+    public VertexArray getVertices() {
+        return vertices;
+    }
+
+    /** Re-send the vertices to OpenGL the next time they're rendered. */
+    public void invalidate() {
+        uploaded = false;
+        clientVertices = null;
+    }
+
+    public void render(MinecraftAccess mc) {
+        if (vertices.isEmpty()) {
+            return;
+        }
+        if (!uploaded) {
+            upload(true);
+        }
+        if (vboId != 0) {
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
+            GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+            GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, 0);
+            GL11.glDrawArrays(mode, 0, vertices.size());
+            GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+        } else if (listId != 0) {
+            GL11.glCallList(listId);
+        } else {
+            mc.startDrawing(mode);
+            vertices.addVertices(mc);
+            mc.finishDrawing();
+        }
+    }
+
+    /**
+     * Same as render, but with a color for each vertex (RGBA, 4 unsigned
+     * bytes each) rather than the current color. The colors can change from
+     * one frame to the next, so they can't be compiled into a display list.
+     * Without VBOs the vertices are sent as a client-side vertex array
+     * instead, which is still a single call.
+     */
+    public void renderColored(MinecraftAccess mc, ByteBuffer colors) {
+        if (vertices.isEmpty()) {
+            return;
+        }
+        if (colors.remaining() < vertices.size() * 4) {
+            throw new IllegalArgumentException();
+        }
+        if (!uploaded) {
+            upload(false);
+        }
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        if (vboId != 0) {
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
+            GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, 0);
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+        } else {
+            if (clientVertices == null) {
+                clientVertices = vertices.toFloatBuffer();
+            }
+            GL11.glVertexPointer(3, 0, clientVertices);
+        }
+        GL11.glColorPointer(4, true, 0, colors);
+        GL11.glDrawArrays(mode, 0, vertices.size());
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+    }
+
+    /**
+     * @param compile if VBOs aren't supported, whether to compile a display
+     *        list instead.
+     */
+    private void upload(boolean compile) {
+        if (GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
+            uploaded = true;
+            if (vboId == 0) {
+                vboId = ARBVertexBufferObject.glGenBuffersARB();
+            }
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
+            ARBVertexBufferObject.glBufferDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vertices.toFloatBuffer(), ARBVertexBufferObject.GL_STATIC_DRAW_ARB);
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+            return;
+        }
+        if (!compile) {
+            return;
+        }
+        uploaded = true;
+        if (listId == 0) {
+            listId = GL11.glGenLists(1);
+            if (listId == 0) {
+                // Out of display lists; fall back to immediate mode.
+                return;
+            }
+        }
+        GL11.glNewList(listId, GL11.GL_COMPILE);
+        GL11.glBegin(mode);
+        for (int i = 0; i < vertices.size(); i++) {
+            GL11.glVertex3f(vertices.getX(i), vertices.getY(i), vertices.getZ(i));
+        }
+        GL11.glEnd();
+        GL11.glEndList();
+    }
+
+    /** Release the VBO or display list, if any. */
+    public void dispose() {
+        if (vboId != 0) {
+            ARBVertexBufferObject.glDeleteBuffersARB(vboId);
+            vboId = 0;
+        }
+        if (listId != 0) {
+            GL11.glDeleteLists(listId, 1);
+            listId = 0;
+        }
+        invalidate();
+    }
+}
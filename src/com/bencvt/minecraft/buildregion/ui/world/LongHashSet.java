@@ -0,0 +1,85 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.util.Arrays;
+
+/**
+ * A minimal open-addressing hash set of primitive longs, so large meshes can
+ * track millions of packed edge keys without boxing each one.
+ * <p>
+ * Negative keys are not supported.
+ * 
+ * @author bencvt
+ */
+public class LongHashSet {
+    public static final int INITIAL_CAPACITY = 1024;
+
+    /** Each key is stored plus one so that zero can mark an empty slot. */
+    private long[] slots;
+    private int size;
+    private int mask;
+
+    public LongHashSet() {
+        slots = new long[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0L);
+        size = 0;
+    }
+
+    public boolean contains(long key) {
+        final long stored = key + 1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (slots[i] == stored) {
+                return true;
+            } else if (slots[i] == 0L) {
+                return false;
+            }
+        }
+    }
+
+    /** @return true if the key was not already in the set. */
+    public boolean add(long key) {
+        if (key < 0L) {
+            throw new IllegalArgumentException();
+        }
+        final long stored = key + 1;
+        int i = slot(key);
+        while (slots[i] != 0L) {
+            if (slots[i] == stored) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = stored;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        final long[] prev = slots;
+        slots = new long[prev.length * 2];
+        mask = slots.length - 1;
+        for (long stored : prev) {
+            if (stored != 0L) {
+                int i = slot(stored - 1);
+                while (slots[i] != 0L) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = stored;
+            }
+        }
+    }
+}
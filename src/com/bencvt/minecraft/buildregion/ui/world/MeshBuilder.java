@@ -0,0 +1,86 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Run mesh builds on a background thread so the client thread never stalls
+ * on a large region.
+ * <p>
+ * There is a single worker thread shared by every shape. Builds are expected
+ * to be cancelled (via Future.cancel) as soon as they're superseded, so the
+ * queue never holds more than a build or two. Long-running build code should
+ * call checkCancelled every so often to bail out promptly.
+ * <p>
+ * Builds may in turn split their work across a shared ForkJoinPool, sized
+ * to the number of available processors.
+ * 
+ * @author bencvt
+ */
+public class MeshBuilder {
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "BuildRegion mesh builder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+    private static final ForkJoinPool forkJoinPool = new ForkJoinPool();
+    private static final ThreadLocal<Future<?>> currentBuild = new ThreadLocal<Future<?>>();
+
+    public static <T> Future<T> submit(Callable<T> build) {
+        FutureTask<T> task = new FutureTask<T>(build) {
+            @Override
+            public void run() {
+                currentBuild.set(this);
+                try {
+                    super.run();
+                } finally {
+                    currentBuild.remove();
+                }
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * @return the build running on the current thread, or null if this isn't
+     *         the worker thread.
+     */
+    public static Future<?> getCurrentBuild() {
+        return currentBuild.get();
+    }
+
+    public static ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * @throws CancellationException if the build running on the current
+     *         thread has been cancelled.
+     */
+    public static void checkCancelled() {
+        checkCancelled(currentBuild.get());
+    }
+
+    /**
+     * Same as checkCancelled(), but for work that has been forked off to
+     * another thread on behalf of a build. The build's thread can't simply
+     * be interrupted: it's blocked waiting on the forked work, which doesn't
+     * preserve the interrupt flag in the meantime.
+     */
+    public static void checkCancelled(Future<?> build) {
+        if (build != null && build.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of built meshes, so that switching back to a recently
+ * used shape doesn't have to rebuild it. Least recently used meshes are
+ * evicted once the vertices stored exceed a maximum size.
+ * <p>
+ * The cache only holds the vertices. Each get returns new MeshSection
+ * instances (sharing the cached vertices, which are never modified once
+ * built) so that every shape can manage its own VBOs.
+ * <p>
+ * Thread-safe: meshes are put from the MeshBuilder thread and gotten from
+ * the render thread.
+ * 
+ * @author bencvt
+ */
+public class MeshCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024L * 1024L;
+
+    private static final LinkedHashMap<MeshKey, Entry> entries = new LinkedHashMap<MeshKey, Entry>(16, 0.75F, true);
+    private static long totalBytes;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+
+    private static class Entry {
+        private final List<MeshSection> sections;
+        private final long byteSize;
+        private Entry(List<MeshSection> sections, long byteSize) {
+            this.sections = sections;
+            this.byteSize = byteSize;
+        }
+    }
+
+    private MeshCache() {
+        // Do not instantiate.
+    }
+
+    /**
+     * @return a copy of the cached mesh, or null if there isn't one.
+     */
+    public static synchronized List<MeshSection> get(MeshKey key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : copy(entry.sections);
+    }
+
+    /**
+     * Add a newly built mesh to the cache, evicting older meshes as needed.
+     * The sections' vertices are only read, never modified, as they may
+     * already be in use by the render thread. They should already be
+     * trimmed to size (see MeshSection.trimToSize), or the cache will hold
+     * on to their unused capacity too.
+     */
+    public static synchronized void put(MeshKey key, List<MeshSection> sections) {
+        long byteSize = 0;
+        for (MeshSection section : sections) {
+            byteSize += section.getByteSize();
+        }
+        if (byteSize > maxBytes) {
+            return;
+        }
+        Entry prev = entries.put(key, new Entry(copy(sections), byteSize));
+        if (prev != null) {
+            totalBytes -= prev.byteSize;
+        }
+        totalBytes += byteSize;
+        evict();
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /** @return the approximate size of all the cached vertices. */
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public static synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the approximate maximum size of all the cached vertices. Zero
+     * disables the cache.
+     */
+    public static synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException();
+        }
+        MeshCache.maxBytes = maxBytes;
+        evict();
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<MeshKey, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().byteSize;
+            it.remove();
+        }
+    }
+
+    private static List<MeshSection> copy(List<MeshSection> sections) {
+        List<MeshSection> result = new ArrayList<MeshSection>(sections.size());
+        for (MeshSection section : sections) {
+            result.add(section.copy());
+        }
+        return result;
+    }
+}
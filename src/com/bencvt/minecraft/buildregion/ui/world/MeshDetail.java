@@ -0,0 +1,19 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+/**
+ * Level of detail for a mesh section, chosen by distance from the observer.
+ * Each level's lines are a subset of the previous level's.
+ * 
+ * @author bencvt
+ */
+public enum MeshDetail {
+    /** Every line, in the shape's MeshStyle. */
+    FULL,
+    /**
+     * Every line where the surface bends, plus the grid lines on flat faces
+     * that fall on every fourth block boundary.
+     */
+    COARSE,
+    /** Only the lines where the surface bends, i.e. its silhouette. */
+    OUTLINE;
+}
@@ -0,0 +1,91 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.util.Arrays;
+
+import libshapedraw.primitive.Axis;
+import libshapedraw.primitive.ReadonlyVector3;
+
+import com.bencvt.minecraft.buildregion.region.RegionBase;
+
+/**
+ * Identifies the mesh for a region, independent of where the region is.
+ * <p>
+ * Moving a region by whole blocks doesn't change which blocks are inside it
+ * relative to the lower corner of its AABB, so neither does it change the
+ * vertices. Moving it by a half block does, so the key includes which axes
+ * the origin is on a half unit for, but not the origin itself.
+ * <p>
+ * Immutable.
+ * 
+ * @author bencvt
+ */
+public class MeshKey {
+    private final Class<? extends RegionBase> regionType;
+    private final Axis axis;
+    private final double[] dimensions;
+    private final int halfUnitOrigin;
+    private final MeshStyle meshStyle;
+    private final int hashCode;
+
+    /**
+     * @param region the region to build the key for. Only its type and
+     *        origin are used; everything else that affects which blocks are
+     *        inside it must be passed as axis and dimensions.
+     * @param axis null if the region type doesn't have a meaningful axis.
+     * @param dimensions e.g., radii or height.
+     */
+    public MeshKey(RegionBase region, MeshStyle meshStyle, Axis axis, double ... dimensions) {
+        if (region == null || meshStyle == null) {
+            throw new IllegalArgumentException();
+        }
+        regionType = region.getClass();
+        this.axis = axis;
+        this.dimensions = dimensions.clone();
+        final ReadonlyVector3 origin = region.getOriginReadonly();
+        halfUnitOrigin = (isHalfUnit(origin.getX()) ? 1 : 0) |
+                (isHalfUnit(origin.getY()) ? 2 : 0) |
+                (isHalfUnit(origin.getZ()) ? 4 : 0);
+        this.meshStyle = meshStyle;
+
+        int h = regionType.hashCode();
+        h = h*31 + (axis == null ? 0 : axis.hashCode());
+        h = h*31 + Arrays.hashCode(this.dimensions);
+        h = h*31 + halfUnitOrigin;
+        h = h*31 + meshStyle.hashCode();
+        hashCode = h;
+    }
+
+    private static boolean isHalfUnit(double d) {
+        return d != Math.floor(d);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MeshKey)) {
+            return false;
+        }
+        MeshKey other = (MeshKey) obj;
+        return hashCode == other.hashCode &&
+                regionType == other.regionType &&
+                axis == other.axis &&
+                halfUnitOrigin == other.halfUnitOrigin &&
+                meshStyle == other.meshStyle &&
+                Arrays.equals(dimensions, other.dimensions);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return regionType.getSimpleName() + "[axis=" + axis +
+                ",dimensions=" + Arrays.toString(dimensions) +
+                ",halfUnitOrigin=" + halfUnitOrigin +
+                ",meshStyle=" + meshStyle + "]";
+    }
+}
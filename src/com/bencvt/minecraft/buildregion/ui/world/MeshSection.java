@@ -0,0 +1,303 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import libshapedraw.MinecraftAccess;
+
+import org.lwjgl.opengl.ARBVertexBufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * A SIZE x SIZE x SIZE block section of a mesh, with its own vertex cache
+ * and its own VBO for each MeshDetail level.
+ * <p>
+ * If the client doesn't support VBOs, each level is compiled into a display
+ * list instead, which most old and software OpenGL drivers still handle far
+ * better than immediate mode. Immediate mode is only used if a display list
+ * couldn't be allocated.
+ * <p>
+ * The section origin is relative to the mesh origin, and the vertices are
+ * relative to the section origin. The mesh origin is on a grid of SIZE-block
+ * sections anchored to the region's origin (see RenderVertexBuffer), so it's
+ * usually a little below the lower corner of the region's AABB.
+ * <p>
+ * Lines on the upper faces of the section may belong to it, so vertices
+ * range from slightly below 0 to slightly above SIZE along each axis.
+ * <p>
+ * Every vertex is on a 1/QUANTUM block lattice, so inside a section they fit
+ * in 16-bit fixed point. VBOs store them as GL_SHORTs, scaled back up when
+ * rendering, which takes half the VRAM (and bus traffic) of floats.
+ * 
+ * @author bencvt
+ */
+public class MeshSection {
+    public static final int SIZE = 16;
+    /** VBO coordinates are in units of 1/QUANTUM blocks. */
+    public static final int QUANTUM = 128;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    /** Indexed by MeshDetail ordinal. */
+    private final VertexArray[] vertices;
+    /** The VBO handles. Only touched by the render thread. */
+    private final int[] vboIds;
+    /** The number of bytes each VBO has room for. */
+    private final int[] vboCapacities;
+    /** Whether each VBO is GL_SHORT (quantized) rather than GL_FLOAT. */
+    private final boolean[] vboQuantized;
+    /** The display list handles, if not using VBOs. */
+    private final int[] listIds;
+
+    public MeshSection(int originX, int originY, int originZ, VertexArray[] vertices) {
+        if (vertices.length != MeshDetail.values().length) {
+            throw new IllegalArgumentException();
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.vertices = vertices;
+        vboIds = new int[vertices.length];
+        vboCapacities = new int[vertices.length];
+        vboQuantized = new boolean[vertices.length];
+        listIds = new int[vertices.length];
+    }
+
+    /**
+     * @return a new section sharing this section's vertices, but without any
+     *         VBOs or display lists.
+     */
+    public MeshSection copy() {
+        return new MeshSection(originX, originY, originZ, vertices.clone());
+    }
+
+    public void trimToSize() {
+        for (VertexArray v : vertices) {
+            v.trimToSize();
+        }
+    }
+
+    /** @return the approximate memory used by the vertices. */
+    public long getByteSize() {
+        long byteSize = 0;
+        for (VertexArray v : vertices) {
+            byteSize += v.getByteSize();
+        }
+        return byteSize;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    public VertexArray getVertices(MeshDetail detail) {
+        return vertices[detail.ordinal()];
+    }
+
+    /**
+     * @return the squared distance from the point, which is relative to the
+     *         mesh origin, to the nearest part of this section.
+     */
+    public double getDistanceSquared(double x, double y, double z) {
+        double dx = Math.max(0.0, Math.max(originX - x, x - originX - SIZE));
+        double dy = Math.max(0.0, Math.max(originY - y, y - originY - SIZE));
+        double dz = Math.max(0.0, Math.max(originZ - z, z - originZ - SIZE));
+        return dx*dx + dy*dy + dz*dz;
+    }
+
+    /**
+     * @return true if any part of this section might be on-screen. The
+     *         frustum must be in the same coordinate space as the section
+     *         origin, i.e. relative to the mesh origin.
+     */
+    public boolean isInFrustum(Frustum frustum) {
+        final double m = RenderBase.CUBE_MARGIN;
+        return frustum.isBoxVisible(
+                originX - m, originY - m, originZ - m,
+                originX + SIZE + m, originY + SIZE + m, originZ + SIZE + m);
+    }
+
+    /**
+     * Set up the OpenGL state shared by every section rendered in a pass, so
+     * that rendering a section is just a bind and a draw. Must be followed
+     * by endRender once all of the pass's sections have been rendered.
+     * <p>
+     * The sections don't have colors of their own: the current color (e.g.
+     * an animating BuildModeValue color) applies to the whole pass.
+     */
+    public static void beginRender() {
+        if (GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
+            GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        }
+    }
+
+    public static void endRender() {
+        if (GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+            GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        }
+    }
+
+    /** Must be called between beginRender and endRender. */
+    public void render(MinecraftAccess mc, MeshDetail detail) {
+        final VertexArray vertices = this.vertices[detail.ordinal()];
+        final int vboId = vboIds[detail.ordinal()];
+        final int listId = listIds[detail.ordinal()];
+        if (vertices.isEmpty()) {
+            return;
+        }
+        GL11.glPushMatrix();
+        GL11.glTranslated(originX, originY, originZ);
+        if (vboId != 0) {
+            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
+            if (vboQuantized[detail.ordinal()]) {
+                GL11.glScaled(1.0 / QUANTUM, 1.0 / QUANTUM, 1.0 / QUANTUM);
+                GL11.glVertexPointer(3, GL11.GL_SHORT, 0, 0);
+            } else {
+                GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, 0);
+            }
+            GL11.glDrawArrays(GL11.GL_LINES, 0, vertices.size());
+        } else if (listId != 0) {
+            GL11.glCallList(listId);
+        } else {
+            mc.startDrawing(GL11.GL_LINES);
+            vertices.addVertices(mc);
+            mc.finishDrawing();
+        }
+        GL11.glPopMatrix();
+    }
+
+    /**
+     * Copy the vertices of each detail level to a new VBO, and register it.
+     * If the client doesn't support VBOs, compile a display list instead. Any
+     * previous VBOs or display lists will be removed.
+     */
+    public void createVBOs() {
+        removeVBOs();
+        if (!GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
+            for (int i = 0; i < vertices.length; i++) {
+                compileList(i, 0);
+            }
+            return;
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            uploadVBO(i, 0, 0);
+        }
+
+        // We could clear the vertices at this point as they're redundant, but
+        // keep them around just in case the VBOs get removed prematurely.
+    }
+
+    /**
+     * Same as createVBOs, but take over the VBOs of a section this one is
+     * replacing instead of registering new ones. Where the new vertices fit
+     * in the old VBO they're copied in place, sparing the driver from
+     * reallocating VRAM. Display lists are recompiled under the old handles.
+     */
+    public void updateVBOs(MeshSection prev) {
+        removeVBOs();
+        if (!GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
+            for (int i = 0; i < vertices.length; i++) {
+                compileList(i, prev.listIds[i]);
+                prev.listIds[i] = 0;
+            }
+            prev.removeVBOs();
+            return;
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            uploadVBO(i, prev.vboIds[i], prev.vboCapacities[i]);
+            prev.vboIds[i] = 0;
+            prev.vboCapacities[i] = 0;
+        }
+    }
+
+    private void uploadVBO(int i, int vboId, int capacity) {
+        if (vertices[i].isEmpty()) {
+            if (vboId != 0) {
+                ARBVertexBufferObject.glDeleteBuffersARB(vboId);
+            }
+            return;
+        }
+
+        // Quantize the vertices to 16-bit fixed point, halving our VRAM usage
+        // compared to floats. This can only fail if a vertex is somehow off
+        // the lattice, in which case 32-bit floating point will have to do.
+        final ShortBuffer quantized = vertices[i].toShortBuffer(QUANTUM);
+        final FloatBuffer vbo = quantized == null ? vertices[i].toFloatBuffer() : null;
+        final int byteSize = quantized == null ? vbo.capacity() * 4 : quantized.capacity() * 2;
+
+        // Copy the buffer into VRAM, registering the VBO if needed.
+        if (vboId == 0) {
+            vboId = ARBVertexBufferObject.glGenBuffersARB();
+        }
+        ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
+        if (byteSize <= capacity) {
+            if (quantized != null) {
+                ARBVertexBufferObject.glBufferSubDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0, quantized);
+            } else {
+                ARBVertexBufferObject.glBufferSubDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0, vbo);
+            }
+        } else {
+            if (quantized != null) {
+                ARBVertexBufferObject.glBufferDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, quantized, ARBVertexBufferObject.GL_STATIC_DRAW_ARB);
+            } else {
+                ARBVertexBufferObject.glBufferDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vbo, ARBVertexBufferObject.GL_STATIC_DRAW_ARB);
+            }
+            capacity = byteSize;
+        }
+        ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+        vboIds[i] = vboId;
+        vboCapacities[i] = capacity;
+        vboQuantized[i] = quantized != null;
+    }
+
+    private void compileList(int i, int listId) {
+        if (vertices[i].isEmpty()) {
+            if (listId != 0) {
+                GL11.glDeleteLists(listId, 1);
+            }
+            return;
+        }
+        if (listId == 0) {
+            listId = GL11.glGenLists(1);
+            if (listId == 0) {
+                // Out of display lists; fall back to immediate mode.
+                return;
+            }
+        }
+        final VertexArray v = vertices[i];
+        GL11.glNewList(listId, GL11.GL_COMPILE);
+        GL11.glBegin(GL11.GL_LINES);
+        for (int j = 0; j < v.size(); j++) {
+            GL11.glVertex3f(v.getX(j), v.getY(j), v.getZ(j));
+        }
+        GL11.glEnd();
+        GL11.glEndList();
+        listIds[i] = listId;
+    }
+
+    /** Remove any VBOs or display lists. */
+    public void removeVBOs() {
+        for (int i = 0; i < vboIds.length; i++) {
+            if (vboIds[i] != 0) {
+                ARBVertexBufferObject.glDeleteBuffersARB(vboIds[i]);
+                vboIds[i] = 0;
+                vboCapacities[i] = 0;
+            }
+            if (listIds[i] != 0) {
+                GL11.glDeleteLists(listIds[i], 1);
+                listIds[i] = 0;
+            }
+        }
+    }
+}
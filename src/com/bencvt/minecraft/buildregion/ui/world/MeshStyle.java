@@ -0,0 +1,26 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+/**
+ * How RenderVertexBuffer outlines the blocks on the surface of a region.
+ * 
+ * @author bencvt
+ */
+public enum MeshStyle {
+    /**
+     * Outline each surface block separately, as a slightly shrunken cube.
+     * Edges shared by neighboring blocks are drawn two to four times.
+     */
+    BLOCKS,
+    /**
+     * Draw each visible block edge exactly once, nudged slightly towards the
+     * inside of the region rather than towards any particular block.
+     */
+    EDGES,
+    /**
+     * Same as EDGES, but runs of collinear edges are joined into single
+     * long lines wherever the line doesn't step in or out. Large flat faces
+     * need far fewer vertices, at the cost of the small gaps that otherwise
+     * mark where each block begins and ends.
+     */
+    MERGED;
+}
@@ -58,6 +58,10 @@ public abstract class RenderBase extends Shape {
     public static final Color MARKER_COLOR_VISIBLE = Color.WHITE.copy().setAlpha(0.5);
     public static final Color MARKER_COLOR_HIDDEN = Color.WHITE.copy().setAlpha(0.25);
     public static final double MARKER_MARGIN = 1.0/8.0;
+    /** Lazily instantiated, indexed by which axes the marker is split on. */
+    private static final Marker[] markers = new Marker[8];
+    /** Lazily instantiated. */
+    private static GeometryBuffer cornerMarker;
 
     private final ReadonlyColor lineColorVisible;
     private final ReadonlyColor lineColorHidden;
@@ -67,6 +71,9 @@ public abstract class RenderBase extends Shape {
     private Timeline timelineShiftOrigin;
     private Timeline timelineFade;
     protected boolean renderMarkers;
+    private Marker marker;
+    private final VertexColors markerColorsVisible = new VertexColors();
+    private final VertexColors markerColorsHidden = new VertexColors();
 
     protected RenderBase(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden) {
         super(Vector3.ZEROS.copy()); // child class responsible for setting origin
@@ -81,6 +88,7 @@ public abstract class RenderBase extends Shape {
         shapeScale = new ShapeScale(1.0, 1.0, 1.0);
         addTransform(shapeScale);
         actualOrigin = getOriginReadonly().copy();
+        updateMarker();
         renderMarkers = true;
     }
 
@@ -92,6 +100,15 @@ public abstract class RenderBase extends Shape {
         // do nothing
     }
 
+    /**
+     * Stop any background work being done on behalf of this Shape, e.g. a
+     * mesh build. Called as soon as this Shape starts fading out, as it will
+     * never be fully visible again.
+     */
+    public void cancelBackgroundWork() {
+        // do nothing
+    }
+
     /**
      * To keep the origin marker rendering consistent, this method must be
      * called whenever the origin is being updated, either directly or via a
@@ -99,6 +116,7 @@ public abstract class RenderBase extends Shape {
      */
     public final void onUpdateOrigin(ReadonlyVector3 newOrigin) {
         actualOrigin.set(newOrigin);
+        updateMarker();
     }
 
     /** @return the coordinate where the corner marker should be rendered. */
@@ -119,6 +137,7 @@ public abstract class RenderBase extends Shape {
         if (alphaBase <= 0.0) {
             return;
         }
+        beginRender(mc);
         renderShell(mc);
         GL11.glLineWidth(LINE_WIDTH);
         GL11.glDepthFunc(GL11.GL_LEQUAL);
@@ -132,6 +151,15 @@ public abstract class RenderBase extends Shape {
         }
     }
 
+    /**
+     * Called once per frame before any rendering, with the same OpenGL state
+     * that every render pass will start with. Child classes can override
+     * this method to do work that all passes share, e.g. visibility tests.
+     */
+    protected void beginRender(MinecraftAccess mc) {
+        // do nothing
+    }
+
     /**
      * If a shell surrounding the region is appropriate for the region type,
      * the child class can override this method.
@@ -148,95 +176,107 @@ public abstract class RenderBase extends Shape {
             return;
         }
 
-        double x = getOriginReadonly().getX();
-        double y = getOriginReadonly().getY();
-        double z = getOriginReadonly().getZ();
-        double x0 = x + MARKER_MARGIN;
-        double y0 = y + MARKER_MARGIN;
-        double z0 = z + MARKER_MARGIN;
-        double x1 = x + 1 - MARKER_MARGIN;
-        double y1 = y + 1 - MARKER_MARGIN;
-        double z1 = z + 1 - MARKER_MARGIN;
-        boolean splitX = actualOrigin.getX() != (int) actualOrigin.getX();
-        boolean splitY = actualOrigin.getY() != (int) actualOrigin.getY();
-        boolean splitZ = actualOrigin.getZ() != (int) actualOrigin.getZ();
-
-        // When the origin marker evenly straddles 2 (or 4, or 8) blocks, draw
-        // pairs of squares to split the marker.
-        if (splitX || splitY || splitZ) {
-            lineColor.glApply(alphaBase * ALPHA_MARKER_SPLIT);
-            if (splitX) {
-                x += 0.5 - MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x, y0, z0);
-                mc.addVertex(x, y1, z0);
-                mc.addVertex(x, y1, z1);
-                mc.addVertex(x, y0, z1);
-                mc.finishDrawing();
-                x += MINI_MARGIN + MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x, y0, z0);
-                mc.addVertex(x, y1, z0);
-                mc.addVertex(x, y1, z1);
-                mc.addVertex(x, y0, z1);
-                mc.finishDrawing();
+        final VertexColors colors = lineColor == MARKER_COLOR_VISIBLE ? markerColorsVisible : markerColorsHidden;
+        GL11.glPushMatrix();
+        GL11.glTranslated(
+                getOriginReadonly().getX(),
+                getOriginReadonly().getY(),
+                getOriginReadonly().getZ());
+        marker.geometry.renderColored(mc, colors.update(
+                lineColor, alphaBase, marker.alphaScales, marker.geometry.getVertices().size()));
+        GL11.glPopMatrix();
+
+        // lower corner mini-marker
+        if (getCornerReadonly() != null) {
+            lineColor.glApply(alphaBase);
+            GL11.glPushMatrix();
+            GL11.glTranslated(
+                    getCornerReadonly().getX(),
+                    getCornerReadonly().getY(),
+                    getCornerReadonly().getZ());
+            getCornerMarker().render(mc);
+            GL11.glPopMatrix();
+        }
+    }
+
+    private void updateMarker() {
+        final int split = (actualOrigin.getX() != (int) actualOrigin.getX() ? 1 : 0) |
+                (actualOrigin.getY() != (int) actualOrigin.getY() ? 2 : 0) |
+                (actualOrigin.getZ() != (int) actualOrigin.getZ() ? 4 : 0);
+        if (markers[split] == null) {
+            markers[split] = new Marker(split);
+        }
+        marker = markers[split];
+    }
+
+    /**
+     * The origin marker, relative to the origin. Its geometry only depends
+     * on which axes it's split on, so it's built once per combination and
+     * shared by every instance.
+     */
+    private static class Marker {
+        private final GeometryBuffer geometry;
+        /** How transparent each vertex is, relative to the base alpha. */
+        private final float[] alphaScales;
+
+        private Marker(int split) {
+            geometry = new GeometryBuffer(GL11.GL_LINES);
+            final VertexArray v = geometry.getVertices();
+            final double m0 = MARKER_MARGIN;
+            final double m1 = 1 - MARKER_MARGIN;
+
+            // When the origin marker evenly straddles 2 (or 4, or 8) blocks,
+            // draw pairs of squares to split the marker.
+            final double s0 = 0.5 - MINI_MARGIN;
+            final double s1 = 0.5 + MINI_MARGIN;
+            if ((split & 1) != 0) {
+                v.addLoop(s0, m0, m0, s0, m1, m0, s0, m1, m1, s0, m0, m1);
+                v.addLoop(s1, m0, m0, s1, m1, m0, s1, m1, m1, s1, m0, m1);
             }
-            if (splitY) {
-                y += 0.5 - MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x0, y, z0);
-                mc.addVertex(x1, y, z0);
-                mc.addVertex(x1, y, z1);
-                mc.addVertex(x0, y, z1);
-                mc.finishDrawing();
-                y += MINI_MARGIN + MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x0, y, z0);
-                mc.addVertex(x1, y, z0);
-                mc.addVertex(x1, y, z1);
-                mc.addVertex(x0, y, z1);
-                mc.finishDrawing();
+            if ((split & 2) != 0) {
+                v.addLoop(m0, s0, m0, m1, s0, m0, m1, s0, m1, m0, s0, m1);
+                v.addLoop(m0, s1, m0, m1, s1, m0, m1, s1, m1, m0, s1, m1);
             }
-            if (splitZ) {
-                z += 0.5 - MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x0, y0, z);
-                mc.addVertex(x1, y0, z);
-                mc.addVertex(x1, y1, z);
-                mc.addVertex(x0, y1, z);
-                mc.finishDrawing();
-                z += MINI_MARGIN + MINI_MARGIN;
-                mc.startDrawing(GL11.GL_LINE_LOOP);
-                mc.addVertex(x0, y0, z);
-                mc.addVertex(x1, y0, z);
-                mc.addVertex(x1, y1, z);
-                mc.addVertex(x0, y1, z);
-                mc.finishDrawing();
+            if ((split & 4) != 0) {
+                v.addLoop(m0, m0, s0, m1, m0, s0, m1, m1, s0, m0, m1, s0);
+                v.addLoop(m0, m0, s1, m1, m0, s1, m1, m1, s1, m0, m1, s1);
             }
-        }
+            final int splitCount = v.size();
 
-        lineColor.glApply(alphaBase);
-        renderBox(mc, x0, x1, y0, y1, z0, z1);
+            // bottom
+            v.addLoop(m0, m0, m0, m1, m0, m0, m1, m0, m1, m0, m0, m1);
+            // top
+            v.addLoop(m0, m1, m0, m1, m1, m0, m1, m1, m1, m0, m1, m1);
+            // sides
+            v.add(m0, m0, m0).add(m0, m1, m0);
+            v.add(m1, m0, m0).add(m1, m1, m0);
+            v.add(m1, m0, m1).add(m1, m1, m1);
+            v.add(m0, m0, m1).add(m0, m1, m1);
 
-        // lower corner mini-marker
-        if (getCornerReadonly() != null) {
-            x0 = getCornerReadonly().getX() + CORNER_MARKER_OFFSET;
-            x1 = x0 + CORNER_MARKER_SIZE;
-            y0 = getCornerReadonly().getY() + CORNER_MARKER_OFFSET;
-            y1 = y0 + CORNER_MARKER_SIZE;
-            z0 = getCornerReadonly().getZ() + CORNER_MARKER_OFFSET;
-            z1 = z0 + CORNER_MARKER_SIZE;
-            mc.startDrawing(GL11.GL_LINE_LOOP);
-            mc.addVertex(x0, y0, z0);
-            mc.addVertex(x1, y0, z0);
-            mc.addVertex(x0, y0, z1);
-            mc.finishDrawing();
-            mc.startDrawing(GL11.GL_LINES);
-            mc.addVertex(x0, y0, z0).addVertex(x0, y1, z0);
-            mc.addVertex(x1, y0, z0).addVertex(x0, y1, z0);
-            mc.addVertex(x0, y0, z1).addVertex(x0, y1, z0);
-            mc.finishDrawing();
+            alphaScales = new float[v.size()];
+            for (int i = 0; i < alphaScales.length; i++) {
+                alphaScales[i] = (float) (i < splitCount ? ALPHA_MARKER_SPLIT : 1.0);
+            }
+            geometry.invalidate();
+        }
+    }
+
+    /** @return the lower corner mini-marker, relative to the corner. */
+    private static GeometryBuffer getCornerMarker() {
+        if (cornerMarker == null) {
+            cornerMarker = new GeometryBuffer(GL11.GL_LINES);
+            final VertexArray v = cornerMarker.getVertices();
+            final double c0 = CORNER_MARKER_OFFSET;
+            final double c1 = c0 + CORNER_MARKER_SIZE;
+            v.add(c0, c0, c0).add(c1, c0, c0);
+            v.add(c1, c0, c0).add(c0, c0, c1);
+            v.add(c0, c0, c1).add(c0, c0, c0);
+            v.add(c0, c0, c0).add(c0, c1, c0);
+            v.add(c1, c0, c0).add(c0, c1, c0);
+            v.add(c0, c0, c1).add(c0, c1, c0);
+            cornerMarker.invalidate();
         }
+        return cornerMarker;
     }
 
     protected void renderBox(MinecraftAccess mc, double x0, double x1, double y0, double y1, double z0, double z1) {
@@ -18,6 +18,9 @@ import com.bencvt.minecraft.buildregion.region.RegionCuboid;
  * The cuboid is rendered as a translucent box. The edges are rendered as
  * thicker than normal lines. The sides are filled with block-sized grid lines,
  * unless the side is too long.
+ * <p>
+ * The geometry is built once and cached (see GeometryBuffer), and only
+ * rebuilt when the cuboid is resized.
  * 
  * @author bencvt
  */
@@ -28,6 +31,11 @@ public class RenderCuboid extends RenderBase {
     private final Vector3 lower;
     private final Vector3 upper;
     private Timeline timelineShiftCorners;
+    /** The size of the cuboid the cached geometry was built for. */
+    private final Vector3 geometrySize;
+    private final GeometryBuffer shell;
+    private final GeometryBuffer border;
+    private final GeometryBuffer grid;
 
     protected RenderCuboid(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionCuboid region) {
         super(lineColorVisible, lineColorHidden);
@@ -35,6 +43,11 @@ public class RenderCuboid extends RenderBase {
         lower = new Vector3();
         upper = new Vector3();
         region.getAABB(lower, upper);
+        geometrySize = new Vector3();
+        shell = new GeometryBuffer(GL11.GL_QUADS);
+        border = new GeometryBuffer(GL11.GL_LINES);
+        grid = new GeometryBuffer(GL11.GL_LINES);
+        updateGeometry(lower, upper);
     }
 
     @Override
@@ -43,86 +56,68 @@ public class RenderCuboid extends RenderBase {
     }
 
     @Override
-    protected void renderShell(MinecraftAccess mc) {
-        final double x0 = lower.getX() + CUBE_MARGIN;
-        final double x1 = upper.getX() + 1 - CUBE_MARGIN;
-        final double y0 = lower.getY() + CUBE_MARGIN;
-        final double y1 = upper.getY() + 1 - CUBE_MARGIN;
-        final double z0 = lower.getZ() + CUBE_MARGIN;
-        final double z1 = upper.getZ() + 1 - CUBE_MARGIN;
+    public void cleanup() {
+        shell.dispose();
+        border.dispose();
+        grid.dispose();
+    }
 
-        GL11.glDisable(GL11.GL_CULL_FACE);
-        getLineColorVisible().glApply(getAlphaBase() * ALPHA_SHELL);
+    /**
+     * (Re)build the cached geometry to match the target corners. The
+     * vertices are relative to the lower corner.
+     */
+    private void updateGeometry(ReadonlyVector3 targetLower, ReadonlyVector3 targetUpper) {
+        if (geometrySize.getX() == targetUpper.getX() - targetLower.getX() + 1.0 &&
+                geometrySize.getY() == targetUpper.getY() - targetLower.getY() + 1.0 &&
+                geometrySize.getZ() == targetUpper.getZ() - targetLower.getZ() + 1.0) {
+            // Only moved, not resized: the geometry is still good.
+            return;
+        }
+        geometrySize.set(targetUpper).subtract(targetLower).add(1.0, 1.0, 1.0);
+        final double x0 = CUBE_MARGIN;
+        final double x1 = geometrySize.getX() - CUBE_MARGIN;
+        final double y0 = CUBE_MARGIN;
+        final double y1 = geometrySize.getY() - CUBE_MARGIN;
+        final double z0 = CUBE_MARGIN;
+        final double z1 = geometrySize.getZ() - CUBE_MARGIN;
 
+        VertexArray v = shell.getVertices();
+        v.clear();
         // bottom
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x0, y0, z0);
-        GL11.glVertex3d(x0, y0, z1);
-        GL11.glVertex3d(x1, y0, z1);
-        GL11.glVertex3d(x1, y0, z0);
-        GL11.glEnd();
-
+        v.add(x0, y0, z0).add(x0, y0, z1).add(x1, y0, z1).add(x1, y0, z0);
         // top
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x0, y1, z0);
-        GL11.glVertex3d(x0, y1, z1);
-        GL11.glVertex3d(x1, y1, z1);
-        GL11.glVertex3d(x1, y1, z0);
-        GL11.glEnd();
-
+        v.add(x0, y1, z0).add(x0, y1, z1).add(x1, y1, z1).add(x1, y1, z0);
         // west
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x0, y0, z0);
-        GL11.glVertex3d(x0, y0, z1);
-        GL11.glVertex3d(x0, y1, z1);
-        GL11.glVertex3d(x0, y1, z0);
-        GL11.glEnd();
-
+        v.add(x0, y0, z0).add(x0, y0, z1).add(x0, y1, z1).add(x0, y1, z0);
         // east
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x1, y0, z0);
-        GL11.glVertex3d(x1, y0, z1);
-        GL11.glVertex3d(x1, y1, z1);
-        GL11.glVertex3d(x1, y1, z0);
-        GL11.glEnd();
-
+        v.add(x1, y0, z0).add(x1, y0, z1).add(x1, y1, z1).add(x1, y1, z0);
         // north
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x0, y0, z0);
-        GL11.glVertex3d(x0, y1, z0);
-        GL11.glVertex3d(x1, y1, z0);
-        GL11.glVertex3d(x1, y0, z0);
-        GL11.glEnd();
-
+        v.add(x0, y0, z0).add(x0, y1, z0).add(x1, y1, z0).add(x1, y0, z0);
         // south
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex3d(x0, y0, z1);
-        GL11.glVertex3d(x0, y1, z1);
-        GL11.glVertex3d(x1, y1, z1);
-        GL11.glVertex3d(x1, y0, z1);
-        GL11.glEnd();
-
-        GL11.glEnable(GL11.GL_CULL_FACE);
-    }
-
-    @Override
-    protected void renderLines(MinecraftAccess mc, ReadonlyColor lineColor) {
-        double x0 = lower.getX() + CUBE_MARGIN;
-        double x1 = upper.getX() + 1 - CUBE_MARGIN;
-        double y0 = lower.getY() + CUBE_MARGIN;
-        double y1 = upper.getY() + 1 - CUBE_MARGIN;
-        double z0 = lower.getZ() + CUBE_MARGIN;
-        double z1 = upper.getZ() + 1 - CUBE_MARGIN;
+        v.add(x0, y0, z1).add(x0, y1, z1).add(x1, y1, z1).add(x1, y0, z1);
+        shell.invalidate();
 
-        // border
-        GL11.glLineWidth(LINE_WIDTH * 2.0F);
-        lineColor.glApply(getAlphaBase());
-        renderBox(mc, x0, x1, y0, y1, z0, z1);
+        v = border.getVertices();
+        v.clear();
+        // bottom
+        v.add(x0, y0, z0).add(x1, y0, z0);
+        v.add(x1, y0, z0).add(x1, y0, z1);
+        v.add(x1, y0, z1).add(x0, y0, z1);
+        v.add(x0, y0, z1).add(x0, y0, z0);
+        // top
+        v.add(x0, y1, z0).add(x1, y1, z0);
+        v.add(x1, y1, z0).add(x1, y1, z1);
+        v.add(x1, y1, z1).add(x0, y1, z1);
+        v.add(x0, y1, z1).add(x0, y1, z0);
+        // sides
+        v.add(x0, y0, z0).add(x0, y1, z0);
+        v.add(x1, y0, z0).add(x1, y1, z0);
+        v.add(x1, y0, z1).add(x1, y1, z1);
+        v.add(x0, y0, z1).add(x0, y1, z1);
+        border.invalidate();
 
-        // grid lines
-        GL11.glLineWidth(LINE_WIDTH);
-        lineColor.glApply(getAlphaBase() * ALPHA_SIDE);
-        mc.startDrawing(GL11.GL_LINES);
+        v = grid.getVertices();
+        v.clear();
         double x0G = x0 + MINI_MARGIN;
         double x1G = x1 - MINI_MARGIN;
         double y0G = y0 + MINI_MARGIN;
@@ -131,47 +126,89 @@ public class RenderCuboid extends RenderBase {
         double z1G = z1 - MINI_MARGIN;
         if (y1 - y0 <= MAX_GRID_SIZE) {
             for (double yA = y0; yA < y1; yA += 1.0) {
-                mc.addVertex(x0G, yA, z0G).addVertex(x0G, yA, z1G);
-                mc.addVertex(x1G, yA, z0G).addVertex(x1G, yA, z1G);
-                mc.addVertex(x0G, yA, z0G).addVertex(x1G, yA, z0G);
-                mc.addVertex(x0G, yA, z1G).addVertex(x1G, yA, z1G);
+                v.add(x0G, yA, z0G).add(x0G, yA, z1G);
+                v.add(x1G, yA, z0G).add(x1G, yA, z1G);
+                v.add(x0G, yA, z0G).add(x1G, yA, z0G);
+                v.add(x0G, yA, z1G).add(x1G, yA, z1G);
             }
             for (double yA = y1; yA > y0; yA -= 1.0) {
-                mc.addVertex(x0G, yA, z0G).addVertex(x0G, yA, z1G);
-                mc.addVertex(x1G, yA, z0G).addVertex(x1G, yA, z1G);
-                mc.addVertex(x0G, yA, z0G).addVertex(x1G, yA, z0G);
-                mc.addVertex(x0G, yA, z1G).addVertex(x1G, yA, z1G);
+                v.add(x0G, yA, z0G).add(x0G, yA, z1G);
+                v.add(x1G, yA, z0G).add(x1G, yA, z1G);
+                v.add(x0G, yA, z0G).add(x1G, yA, z0G);
+                v.add(x0G, yA, z1G).add(x1G, yA, z1G);
             }
         }
         if (x1 - x0 <= MAX_GRID_SIZE) {
             for (double xA = x0; xA < x1; xA += 1.0) {
-                mc.addVertex(xA, y0G, z0G).addVertex(xA, y0G, z1G);
-                mc.addVertex(xA, y1G, z0G).addVertex(xA, y1G, z1G);
-                mc.addVertex(xA, y0G, z0G).addVertex(xA, y1G, z0G);
-                mc.addVertex(xA, y0G, z1G).addVertex(xA, y1G, z1G);
+                v.add(xA, y0G, z0G).add(xA, y0G, z1G);
+                v.add(xA, y1G, z0G).add(xA, y1G, z1G);
+                v.add(xA, y0G, z0G).add(xA, y1G, z0G);
+                v.add(xA, y0G, z1G).add(xA, y1G, z1G);
             }
             for (double xA = x1; xA > x0; xA -= 1.0) {
-                mc.addVertex(xA, y0G, z0G).addVertex(xA, y0G, z1G);
-                mc.addVertex(xA, y1G, z0G).addVertex(xA, y1G, z1G);
-                mc.addVertex(xA, y0G, z0G).addVertex(xA, y1G, z0G);
-                mc.addVertex(xA, y0G, z1G).addVertex(xA, y1G, z1G);
+                v.add(xA, y0G, z0G).add(xA, y0G, z1G);
+                v.add(xA, y1G, z0G).add(xA, y1G, z1G);
+                v.add(xA, y0G, z0G).add(xA, y1G, z0G);
+                v.add(xA, y0G, z1G).add(xA, y1G, z1G);
             }
         }
         if (z1 - z0 <= MAX_GRID_SIZE) {
             for (double zA = z0; zA < z1; zA += 1.0) {
-                mc.addVertex(x0G, y0G, zA).addVertex(x0G, y1G, zA);
-                mc.addVertex(x1G, y0G, zA).addVertex(x1G, y1G, zA);
-                mc.addVertex(x0G, y0G, zA).addVertex(x1G, y0G, zA);
-                mc.addVertex(x0G, y1G, zA).addVertex(x1G, y1G, zA);
+                v.add(x0G, y0G, zA).add(x0G, y1G, zA);
+                v.add(x1G, y0G, zA).add(x1G, y1G, zA);
+                v.add(x0G, y0G, zA).add(x1G, y0G, zA);
+                v.add(x0G, y1G, zA).add(x1G, y1G, zA);
             }
             for (double zA = z1; zA > z0; zA -= 1.0) {
-                mc.addVertex(x0G, y0G, zA).addVertex(x0G, y1G, zA);
-                mc.addVertex(x1G, y0G, zA).addVertex(x1G, y1G, zA);
-                mc.addVertex(x0G, y0G, zA).addVertex(x1G, y0G, zA);
-                mc.addVertex(x0G, y1G, zA).addVertex(x1G, y1G, zA);
+                v.add(x0G, y0G, zA).add(x0G, y1G, zA);
+                v.add(x1G, y0G, zA).add(x1G, y1G, zA);
+                v.add(x0G, y0G, zA).add(x1G, y0G, zA);
+                v.add(x0G, y1G, zA).add(x1G, y1G, zA);
             }
         }
-        mc.finishDrawing();
+        grid.invalidate();
+    }
+
+    /**
+     * Position the cached geometry at the current (possibly animating)
+     * corners. While resizing, the geometry for the new size is stretched
+     * to fit rather than rebuilt every frame.
+     */
+    private void applyTransform() {
+        GL11.glTranslated(lower.getX(), lower.getY(), lower.getZ());
+        GL11.glScaled(
+                (upper.getX() - lower.getX() + 1.0) / geometrySize.getX(),
+                (upper.getY() - lower.getY() + 1.0) / geometrySize.getY(),
+                (upper.getZ() - lower.getZ() + 1.0) / geometrySize.getZ());
+    }
+
+    @Override
+    protected void renderShell(MinecraftAccess mc) {
+        GL11.glPushMatrix();
+        applyTransform();
+        GL11.glDisable(GL11.GL_CULL_FACE);
+        getLineColorVisible().glApply(getAlphaBase() * ALPHA_SHELL);
+        shell.render(mc);
+        GL11.glEnable(GL11.GL_CULL_FACE);
+        GL11.glPopMatrix();
+    }
+
+    @Override
+    protected void renderLines(MinecraftAccess mc, ReadonlyColor lineColor) {
+        GL11.glPushMatrix();
+        applyTransform();
+
+        // border
+        GL11.glLineWidth(LINE_WIDTH * 2.0F);
+        lineColor.glApply(getAlphaBase());
+        border.render(mc);
+
+        // grid lines
+        GL11.glLineWidth(LINE_WIDTH);
+        lineColor.glApply(getAlphaBase() * ALPHA_SIDE);
+        grid.render(mc);
+
+        GL11.glPopMatrix();
     }
 
     @Override
@@ -183,6 +220,7 @@ public class RenderCuboid extends RenderBase {
             return false;
         }
         RegionCuboid cuboid = (RegionCuboid) region;
+        updateGeometry(cuboid.getLowerCornerReadonly(), cuboid.getUpperCornerReadonly());
         animateShiftOrigin(region.getOriginReadonly(), animate);
         if (timelineShiftCorners != null && !timelineShiftCorners.isDone()) {
             timelineShiftCorners.abort();
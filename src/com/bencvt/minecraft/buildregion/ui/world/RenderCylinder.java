@@ -1,17 +1,12 @@
 package com.bencvt.minecraft.buildregion.ui.world;
 
-import java.util.List;
-
 import libshapedraw.MinecraftAccess;
-import libshapedraw.animation.trident.Timeline;
 import libshapedraw.primitive.Axis;
 import libshapedraw.primitive.ReadonlyColor;
 import libshapedraw.primitive.ReadonlyVector3;
 import libshapedraw.primitive.Vector3;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.glu.Cylinder;
-import org.lwjgl.util.glu.GLU;
 
 import com.bencvt.minecraft.buildregion.region.RegionBase;
 import com.bencvt.minecraft.buildregion.region.RegionCylinder;
@@ -28,14 +23,11 @@ import com.bencvt.minecraft.buildregion.region.RegionCylinder;
 public class RenderCylinder extends RenderVertexBuffer {
     private final Axis axis;
     private final Vector3 halfHeightAndRadii;
-    private final Cylinder shell;
-    private Timeline timelineResize;
 
-    public RenderCylinder(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionCylinder region) {
-        super(lineColorVisible, lineColorHidden, region);
+    public RenderCylinder(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionCylinder region, MeshStyle meshStyle) {
+        super(lineColorVisible, lineColorHidden, region, meshStyle);
         axis = region.getAxis();
         halfHeightAndRadii = region.getHalfHeightAndRadiiReadonly().copy();
-        shell = new Cylinder();
     }
 /*
     @Override
@@ -64,16 +56,15 @@ public class RenderCylinder extends RenderVertexBuffer {
                     halfHeightAndRadii.getZ() * 2.0);
         }
 
+        final ShellMesh shell = ShellMesh.getCylinder();
         GL11.glLineWidth(1.0F);
         getLineColorVisible().glApply(getAlphaBase());
-        shell.setDrawStyle(GLU.GLU_LINE);
-        shell.draw(1.0F, 1.0F, 1.0F, 24, 1);
+        shell.renderLines(mc);
         GL11.glLineWidth(LINE_WIDTH);
 
         GL11.glDisable(GL11.GL_CULL_FACE);
         getLineColorVisible().glApply(getAlphaBase() * ALPHA_SHELL);
-        shell.setDrawStyle(GLU.GLU_FILL);
-        shell.draw(1.0F, 1.0F, 1.0F, 24, 1);
+        shell.renderFill(mc);
         GL11.glEnable(GL11.GL_CULL_FACE);
 
         GL11.glPopMatrix();
@@ -90,7 +81,11 @@ public class RenderCylinder extends RenderVertexBuffer {
     }
 */
 
-    /*
+    /**
+     * Translate or patch the existing vertices rather than replacing the
+     * whole shape. The shell isn't rendered yet, so there's nothing else to
+     * animate.
+     */
     @Override
     public boolean updateIfPossible(RegionBase region, boolean animate) {
         if (!region.isRegionType(RegionCylinder.class)) {
@@ -99,73 +94,20 @@ public class RenderCylinder extends RenderVertexBuffer {
         if (animate && getOriginReadonly().distanceSquared(region.getOriginReadonly()) > SHIFT_MAX_SQUARED) {
             return false;
         }
-        RegionCylinder cylinder = (RegionCylinder) region;
-        if (axis != cylinder.getAxis()) {
-            return false;
-        }
-        animateShiftOrigin(cylinder.getOriginReadonly(), animate);
-        if (timelineResize != null && !timelineResize.isDone()) {
-            timelineResize.abort();
-            timelineResize = null;
-        }
-        if (!animate) {
-            halfHeightAndRadii.set(cylinder.getHalfHeightAndRadiiReadonly());
-            return true;
+        if (!translateVertexCache(region, animate)) {
+            populateVertexCache(region);
         }
-        timelineResize = new Timeline(halfHeightAndRadii);
-        timelineResize.addPropertyToInterpolate("x",
-                halfHeightAndRadii.getX(),
-                cylinder.getHalfHeightAndRadiiReadonly().getX());
-        timelineResize.addPropertyToInterpolate("y",
-                halfHeightAndRadii.getY(),
-                cylinder.getHalfHeightAndRadiiReadonly().getY());
-        timelineResize.addPropertyToInterpolate("z",
-                halfHeightAndRadii.getZ(),
-                cylinder.getHalfHeightAndRadiiReadonly().getZ());
-        timelineResize.setDuration(ANIM_DURATION);
-        timelineResize.play();
+        animateShiftOrigin(region.getOriginReadonly(), animate);
         return true;
     }
-    */
 
-    // XXX: temporary
-    private void boxAt(List<Vector3> vertexCache, int x, int y, int z) {
-        double x0 = x + CUBE_MARGIN;
-        double x1 = x + 1 - CUBE_MARGIN;
-        double y0 = y + CUBE_MARGIN;
-        double y1 = y + 1 - CUBE_MARGIN;
-        double z0 = z + CUBE_MARGIN;
-        double z1 = z + 1 - CUBE_MARGIN;
-        vertexCache.add(new Vector3(x0, y0, z0));
-        vertexCache.add(new Vector3(x0, y0, z1));
-        vertexCache.add(new Vector3(x0, y1, z0));
-        vertexCache.add(new Vector3(x0, y1, z1));
-        vertexCache.add(new Vector3(x0, y0, z0));
-        vertexCache.add(new Vector3(x0, y1, z0));
-        vertexCache.add(new Vector3(x0, y0, z1));
-        vertexCache.add(new Vector3(x0, y1, z1));
-        vertexCache.add(new Vector3(x0, y0, z0));
-        vertexCache.add(new Vector3(x1, y0, z0));
-        vertexCache.add(new Vector3(x0, y0, z1));
-        vertexCache.add(new Vector3(x1, y0, z1));
-        vertexCache.add(new Vector3(x0, y1, z0));
-        vertexCache.add(new Vector3(x1, y1, z0));
-        vertexCache.add(new Vector3(x0, y1, z1));
-        vertexCache.add(new Vector3(x1, y1, z1));
-        vertexCache.add(new Vector3(x1, y0, z0));
-        vertexCache.add(new Vector3(x1, y0, z1));
-        vertexCache.add(new Vector3(x1, y1, z0));
-        vertexCache.add(new Vector3(x1, y1, z1));
-        vertexCache.add(new Vector3(x1, y0, z0));
-        vertexCache.add(new Vector3(x1, y1, z0));
-        vertexCache.add(new Vector3(x1, y0, z1));
-        vertexCache.add(new Vector3(x1, y1, z1));
-    }
-/*
     @Override
-    protected void populateVertexCacheWork(List<Vector3> vertexCache, RegionBase region, int offX, int offY, int offZ, int sizeX, int sizeY, int sizeZ) {
+    protected MeshKey createMeshKey(RegionBase region) {
+        if (!region.isRegionType(RegionCylinder.class)) {
+            return null;
+        }
         RegionCylinder cylinder = (RegionCylinder) region;
-        // TODO
+        return new MeshKey(cylinder, getMeshStyle(), cylinder.getAxis(),
+                cylinder.getHeight(), cylinder.getRadiusA(), cylinder.getRadiusB());
     }
-*/
 }
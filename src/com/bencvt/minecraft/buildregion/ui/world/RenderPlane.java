@@ -18,6 +18,9 @@ import com.bencvt.minecraft.buildregion.region.RegionPlane;
  * The plane is rendered as an infinite 1-block-thick wireframe grid. Only a
  * few cells of the grid are rendered, clustered around the origin, which can
  * change. Cells further away from the origin are increasingly transparent.
+ * <p>
+ * The grid is built once per axis and simply translated to follow the
+ * observer, with the fade-out baked into a color for each vertex.
  * 
  * @author bencvt
  */
@@ -26,14 +29,14 @@ public class RenderPlane extends RenderBase {
     public static final int PLANE_RENDER_RADIUS = 10;
     /** Lazily instantiated lookup table. */
     private static double[][] alphaTable;
+    /** Lazily instantiated, one per axis. */
+    private static final Grid[] grids = new Grid[3];
 
     private final Axis axis;
     private final Vector3 observerPosition;
 
-    // Internal arrays used by renderLines, persisted to the instance so we
-    // don't keep pushing temporary objects to the heap every rendering frame.
-    private final double[] baseCoords = {0.0, 0.0, 0.0};
-    private final double[] curCoords = {0.0, 0.0, 0.0};
+    private final VertexColors colorsVisible = new VertexColors();
+    private final VertexColors colorsHidden = new VertexColors();
 
     public RenderPlane(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionPlane region) {
         super(lineColorVisible, lineColorHidden);
@@ -79,119 +82,123 @@ public class RenderPlane extends RenderBase {
 
     @Override
     protected void renderLines(MinecraftAccess mc, ReadonlyColor lineColor) {
-        double alphaLine = getAlphaBase();
+        final Grid grid = getGrid(axis);
+        final VertexColors colors = lineColor == getLineColorVisible() ? colorsVisible : colorsHidden;
 
-        curCoords[0] = baseCoords[0] = observerPosition.getX();
-        curCoords[1] = baseCoords[1] = observerPosition.getY();
-        curCoords[2] = baseCoords[2] = observerPosition.getZ();
-        final int dim0;
-        final int dim1;
+        double x = (int) observerPosition.getX();
+        double y = (int) observerPosition.getY();
+        double z = (int) observerPosition.getZ();
         if (axis == Axis.X) {
-            curCoords[0] = baseCoords[0] = getOriginReadonly().getX();
-            dim0 = 1;
-            dim1 = 2;
+            x = getOriginReadonly().getX();
         } else if (axis == Axis.Y) {
-            curCoords[1] = baseCoords[1] = getOriginReadonly().getY();
-            dim0 = 0;
-            dim1 = 2;
+            y = getOriginReadonly().getY();
         } else if (axis == Axis.Z) {
-            curCoords[2] = baseCoords[2] = getOriginReadonly().getZ();
-            dim0 = 0;
-            dim1 = 1;
+            z = getOriginReadonly().getZ();
         } else {
             throw new IllegalStateException();
         }
-        baseCoords[dim0] = (int) baseCoords[dim0];
-        baseCoords[dim1] = (int) baseCoords[dim1];
-
-        for (int off0 = -PLANE_RENDER_RADIUS; off0 <= PLANE_RENDER_RADIUS; off0++) {
-            curCoords[dim0] = baseCoords[dim0] + off0;
-            for (int off1 = -PLANE_RENDER_RADIUS; off1 <= PLANE_RENDER_RADIUS; off1++) {
-                curCoords[dim1] = baseCoords[dim1] + off1;
-                final double alphaScale = alphaLine * getAlphaScale(off0, off1);
-                if (alphaScale <= 0.0) {
-                    continue;
-                }
-                final double x0 = curCoords[0] + CUBE_MARGIN;
-                final double x1 = curCoords[0] + 1 - CUBE_MARGIN;
-                final double y0 = curCoords[1] + CUBE_MARGIN;
-                final double y1 = curCoords[1] + 1 - CUBE_MARGIN;
-                final double z0 = curCoords[2] + CUBE_MARGIN;
-                final double z1 = curCoords[2] + 1 - CUBE_MARGIN;
-                lineColor.glApply(alphaScale);
-                // Because sides are rendered with a different transparency we
-                // need to check the axis again.
-                if (axis == Axis.X) {
-                    // west
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x0, y0, z0);
-                    mc.addVertex(x0, y1, z0);
-                    mc.addVertex(x0, y1, z1);
-                    mc.addVertex(x0, y0, z1);
-                    mc.finishDrawing();
-                    // east
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x1, y0, z0);
-                    mc.addVertex(x1, y1, z0);
-                    mc.addVertex(x1, y1, z1);
-                    mc.addVertex(x1, y0, z1);
-                    mc.finishDrawing();
-                    // sides
-                    lineColor.glApply(alphaScale * ALPHA_SIDE);
-                    mc.startDrawing(GL11.GL_LINES);
-                    mc.addVertex(x0, y0, z0).addVertex(x1, y0, z0);
-                    mc.addVertex(x0, y1, z0).addVertex(x1, y1, z0);
-                    mc.addVertex(x0, y1, z1).addVertex(x1, y1, z1);
-                    mc.addVertex(x0, y0, z1).addVertex(x1, y0, z1);
-                    mc.finishDrawing();
-                } else if (axis == Axis.Y) {
-                    // bottom
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x0, y0, z0);
-                    mc.addVertex(x1, y0, z0);
-                    mc.addVertex(x1, y0, z1);
-                    mc.addVertex(x0, y0, z1);
-                    mc.finishDrawing();
-                    // top
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x0, y1, z0);
-                    mc.addVertex(x1, y1, z0);
-                    mc.addVertex(x1, y1, z1);
-                    mc.addVertex(x0, y1, z1);
-                    mc.finishDrawing();
-                    // sides
-                    lineColor.glApply(alphaScale * ALPHA_SIDE);
-                    mc.startDrawing(GL11.GL_LINES);
-                    mc.addVertex(x0, y0, z0).addVertex(x0, y1, z0);
-                    mc.addVertex(x1, y0, z0).addVertex(x1, y1, z0);
-                    mc.addVertex(x1, y0, z1).addVertex(x1, y1, z1);
-                    mc.addVertex(x0, y0, z1).addVertex(x0, y1, z1);
-                    mc.finishDrawing();
-                } else if (axis == Axis.Z) {
-                    // north
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x0, y0, z0);
-                    mc.addVertex(x1, y0, z0);
-                    mc.addVertex(x1, y1, z0);
-                    mc.addVertex(x0, y1, z0);
-                    mc.finishDrawing();
-                    // south
-                    mc.startDrawing(GL11.GL_LINE_LOOP);
-                    mc.addVertex(x0, y0, z1);
-                    mc.addVertex(x1, y0, z1);
-                    mc.addVertex(x1, y1, z1);
-                    mc.addVertex(x0, y1, z1);
-                    mc.finishDrawing();
-                    // sides
-                    lineColor.glApply(alphaScale * ALPHA_SIDE);
-                    mc.startDrawing(GL11.GL_LINES);
-                    mc.addVertex(x0, y0, z0).addVertex(x0, y0, z1);
-                    mc.addVertex(x1, y0, z0).addVertex(x1, y0, z1);
-                    mc.addVertex(x1, y1, z0).addVertex(x1, y1, z1);
-                    mc.addVertex(x0, y1, z0).addVertex(x0, y1, z1);
-                    mc.finishDrawing();
+        GL11.glPushMatrix();
+        GL11.glTranslated(x, y, z);
+        grid.geometry.renderColored(mc, colors.update(
+                lineColor, getAlphaBase(), grid.alphaScales, grid.geometry.getVertices().size()));
+        GL11.glPopMatrix();
+    }
+
+    /**
+     * The grid for the given axis, centered on the cell at (0,0,0). The grid
+     * is the same wherever the observer is, so it's only built once per axis
+     * and shared by every instance.
+     */
+    private static Grid getGrid(Axis axis) {
+        final int index = axis.ordinal();
+        if (grids[index] == null) {
+            grids[index] = new Grid(axis);
+        }
+        return grids[index];
+    }
+
+    private static class Grid {
+        private final GeometryBuffer geometry;
+        /** How transparent each vertex is, relative to the base alpha. */
+        private final float[] alphaScales;
+
+        private Grid(Axis axis) {
+            geometry = new GeometryBuffer(GL11.GL_LINES);
+            final VertexArray vertices = geometry.getVertices();
+            final int R = PLANE_RENDER_RADIUS;
+            alphaScales = new float[(2*R + 1) * (2*R + 1) * 24];
+            int n = 0;
+            for (int off0 = -R; off0 <= R; off0++) {
+                for (int off1 = -R; off1 <= R; off1++) {
+                    final double alphaScale = getAlphaScale(off0, off1);
+                    if (alphaScale <= 0.0) {
+                        continue;
+                    }
+                    double x = 0.0;
+                    double y = 0.0;
+                    double z = 0.0;
+                    if (axis == Axis.X) {
+                        y = off0;
+                        z = off1;
+                    } else if (axis == Axis.Y) {
+                        x = off0;
+                        z = off1;
+                    } else if (axis == Axis.Z) {
+                        x = off0;
+                        y = off1;
+                    } else {
+                        throw new IllegalStateException();
+                    }
+                    addCell(vertices, axis,
+                            x + CUBE_MARGIN, x + 1 - CUBE_MARGIN,
+                            y + CUBE_MARGIN, y + 1 - CUBE_MARGIN,
+                            z + CUBE_MARGIN, z + 1 - CUBE_MARGIN);
+                    // Two faces (four lines each), then the four sides.
+                    for (int i = 0; i < 16; i++) {
+                        alphaScales[n++] = (float) alphaScale;
+                    }
+                    for (int i = 0; i < 8; i++) {
+                        alphaScales[n++] = (float) (alphaScale * ALPHA_SIDE);
+                    }
                 }
             }
+            geometry.invalidate();
+        }
+
+        private static void addCell(VertexArray v, Axis axis, double x0, double x1, double y0, double y1, double z0, double z1) {
+            if (axis == Axis.X) {
+                // west
+                v.addLoop(x0, y0, z0, x0, y1, z0, x0, y1, z1, x0, y0, z1);
+                // east
+                v.addLoop(x1, y0, z0, x1, y1, z0, x1, y1, z1, x1, y0, z1);
+                // sides
+                v.add(x0, y0, z0).add(x1, y0, z0);
+                v.add(x0, y1, z0).add(x1, y1, z0);
+                v.add(x0, y1, z1).add(x1, y1, z1);
+                v.add(x0, y0, z1).add(x1, y0, z1);
+            } else if (axis == Axis.Y) {
+                // bottom
+                v.addLoop(x0, y0, z0, x1, y0, z0, x1, y0, z1, x0, y0, z1);
+                // top
+                v.addLoop(x0, y1, z0, x1, y1, z0, x1, y1, z1, x0, y1, z1);
+                // sides
+                v.add(x0, y0, z0).add(x0, y1, z0);
+                v.add(x1, y0, z0).add(x1, y1, z0);
+                v.add(x1, y0, z1).add(x1, y1, z1);
+                v.add(x0, y0, z1).add(x0, y1, z1);
+            } else if (axis == Axis.Z) {
+                // north
+                v.addLoop(x0, y0, z0, x1, y0, z0, x1, y1, z0, x0, y1, z0);
+                // south
+                v.addLoop(x0, y0, z1, x1, y0, z1, x1, y1, z1, x0, y1, z1);
+                // sides
+                v.add(x0, y0, z0).add(x0, y0, z1);
+                v.add(x1, y0, z0).add(x1, y0, z1);
+                v.add(x1, y1, z0).add(x1, y1, z1);
+                v.add(x0, y1, z0).add(x0, y1, z1);
+            } else {
+                throw new IllegalStateException();
+            }
         }
     }
 
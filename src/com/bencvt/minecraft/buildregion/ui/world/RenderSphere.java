@@ -1,8 +1,5 @@
 package com.bencvt.minecraft.buildregion.ui.world;
 
-import java.util.Arrays;
-import java.util.List;
-
 import libshapedraw.MinecraftAccess;
 import libshapedraw.animation.trident.Timeline;
 import libshapedraw.primitive.ReadonlyColor;
@@ -10,8 +7,6 @@ import libshapedraw.primitive.ReadonlyVector3;
 import libshapedraw.primitive.Vector3;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.glu.GLU;
-import org.lwjgl.util.glu.Sphere;
 
 import com.bencvt.minecraft.buildregion.region.RegionBase;
 import com.bencvt.minecraft.buildregion.region.RegionSphere;
@@ -27,13 +22,11 @@ import com.bencvt.minecraft.buildregion.region.RegionSphere;
  */
 public class RenderSphere extends RenderVertexBuffer {
     private final Vector3 radii;
-    private final Sphere shell;
     private Timeline timelineResize;
 
-    public RenderSphere(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionSphere region) {
-        super(lineColorVisible, lineColorHidden, region);
+    public RenderSphere(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionSphere region, MeshStyle meshStyle) {
+        super(lineColorVisible, lineColorHidden, region, meshStyle);
         radii = region.getRadiiReadonly().copy();
-        shell = new Sphere();
     }
 
     @Override
@@ -51,18 +44,14 @@ public class RenderSphere extends RenderVertexBuffer {
         GL11.glRotatef(90.0F, 1.0F, 0.0F, 0.0F);
         GL11.glScaled(radii.getX(), radii.getZ(), radii.getY());
 
+        final ShellMesh shell = ShellMesh.getSphere();
         GL11.glLineWidth(1.0F);
         getLineColorVisible().glApply(getAlphaBase());
-        shell.setDrawStyle(GLU.GLU_LINE);
-        shell.draw(1.0F, 24, 24);
+        shell.renderLines(mc);
         GL11.glLineWidth(LINE_WIDTH);
 
         getLineColorVisible().glApply(getAlphaBase() * ALPHA_SHELL);
-        shell.setDrawStyle(GLU.GLU_FILL);
-        shell.setOrientation(GLU.GLU_INSIDE);
-        shell.draw(1.0F, 24, 24);
-        shell.setOrientation(GLU.GLU_OUTSIDE);
-        shell.draw(1.0F, 24, 24);
+        shell.renderFill(mc);
 
         GL11.glPopMatrix();
     }
@@ -76,12 +65,9 @@ public class RenderSphere extends RenderVertexBuffer {
             return false;
         }
         RegionSphere sphere = (RegionSphere) region;
-        // TODO
-        //this.vertexOffset.animateStart(toTranslate, durationMs)
-        //  - getAABBLowerCornerReadonly()
-        //  - getAABBUpperCornerReadonly()
-        //  - populateVertexCache()
-        //  - vertexOffset.animateStart()
+        if (!translateVertexCache(sphere, animate)) {
+            populateVertexCache(sphere);
+        }
         animateShiftOrigin(sphere.getOriginReadonly(), animate);
         if (timelineResize != null && !timelineResize.isDone()) {
             timelineResize.abort();
@@ -100,10 +86,13 @@ public class RenderSphere extends RenderVertexBuffer {
         return true;
     }
 
-    /*
     @Override
-    protected void populateVertexCacheWork(List<Vector3> vertexCache, RegionBase region, int offX, int offY, int offZ, int sizeX, int sizeY, int sizeZ) {
-        // TODO
+    protected MeshKey createMeshKey(RegionBase region) {
+        if (!region.isRegionType(RegionSphere.class)) {
+            return null;
+        }
+        RegionSphere sphere = (RegionSphere) region;
+        return new MeshKey(sphere, getMeshStyle(), null,
+                sphere.getRadiusX(), sphere.getRadiusY(), sphere.getRadiusZ());
     }
-    */
 }
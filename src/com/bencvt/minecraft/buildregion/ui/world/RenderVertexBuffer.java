@@ -1,8 +1,15 @@
 package com.bencvt.minecraft.buildregion.ui.world;
 
-import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import libshapedraw.MinecraftAccess;
 import libshapedraw.primitive.ReadonlyColor;
@@ -10,12 +17,10 @@ import libshapedraw.primitive.ReadonlyVector3;
 import libshapedraw.primitive.Vector3;
 import libshapedraw.transform.ShapeTranslate;
 
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.ARBVertexBufferObject;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GLContext;
 
 import com.bencvt.minecraft.buildregion.region.RegionBase;
+import com.bencvt.minecraft.buildregion.region.RegionSnapshot;
 import com.bencvt.minecraft.buildregion.region.Units;
 
 /**
@@ -26,7 +31,25 @@ import com.bencvt.minecraft.buildregion.region.Units;
  * <p>
  * If the client supports it, also use an OpenGL VBO (Vertex Buffer Object) to
  * push the vertices to VRAM, significantly increasing performance as we don't
- * have to re-send the vertices to OpenGL every render frame.
+ * have to re-send the vertices to OpenGL every render frame. Otherwise the
+ * vertices are compiled into display lists, to much the same effect.
+ * <p>
+ * The vertices are split into MeshSections, each with its own VBO. Only the
+ * sections within the view distance of the observer and inside the view
+ * frustum are rendered, so huge regions cost about as much per frame as the
+ * part of them near the player and on-screen. Sections further away are
+ * also drawn in less detail (see MeshDetail).
+ * <p>
+ * Vertices are assembled on a background thread (see MeshBuilder) from a
+ * private copy of the region. Until the first build finishes, a plain box
+ * around the region's AABB is rendered in its place. Later builds keep
+ * rendering the old vertices until the new ones are swapped in, which
+ * happens on the render thread.
+ * <p>
+ * Sections are aligned to a grid anchored at the region's origin. Resizing
+ * a region keeps its origin in place, so most sections stay where they were
+ * and only the ones near blocks that changed are rebuilt. The rest (and
+ * their VBOs) are carried over from the previous build.
  * <p>
  * TODO: make abstract and have RegionSphere and RegionCylinder derive from this class
  * TODO: move VBO optimization to LibShapeDraw eventually
@@ -34,228 +57,560 @@ import com.bencvt.minecraft.buildregion.region.Units;
  * @author bencvt
  */
 public /*abstract*/ class RenderVertexBuffer extends RenderBase {
-    /** The VBO handle. */
-    private int vboId;
+    public static final double DEFAULT_VIEW_DISTANCE = 256.0;
+    /** Sections further away than this are drawn in COARSE detail. */
+    public static final double DETAIL_DISTANCE_COARSE = 48.0;
+    /** Sections further away than this are drawn in OUTLINE detail. */
+    public static final double DETAIL_DISTANCE_OUTLINE = 112.0;
 
-    /** Also maintain a regular buffer in case the client doesn't support VBOs. */
-    private final List<Vector3> vertexCache;
+    /** Null until the first build finishes. */
+    private List<MeshSection> sections;
+    /** The detail to draw each section in, or null if it's out of range. */
+    private MeshDetail[] sectionDetail;
+    /** Whether each section is in range and on-screen this frame. */
+    private boolean[] sectionVisible;
+    private final Frustum frustum;
+    private double viewDistance;
+    /** The last observer position, or null if it hasn't been set yet. */
+    private Vector3 observerPosition;
 
-    /** To support animation, all vertices are relative to the lower corner of the AABB. */
+    /** To support animation, all vertices are relative to the mesh origin. */
     protected final ShapeTranslate vertexOffset;
+    /** The lower corner of the AABB, relative to the mesh origin. */
+    private final Vector3 cornerOffset;
+    private final Vector3 corner;
 
-    protected RenderVertexBuffer(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionBase region) {
+    private final MeshStyle meshStyle;
+
+    /**
+     * The build in progress, if any, and the AABB and mesh origin of the
+     * region it's for.
+     */
+    private Future<Mesh> pendingBuild;
+    private final Vector3 pendingLower;
+    private final Vector3 pendingUpper;
+    private final Vector3 pendingOrigin;
+    /**
+     * The build the current sections came from, or null if unknown (e.g.,
+     * they came from the MeshCache).
+     */
+    private Mesh mesh;
+    /**
+     * Identifies the latest build, or null if it can't be reused. Compared
+     * against later updates to see whether the vertices can be reused.
+     */
+    private MeshKey meshKey;
+
+    protected RenderVertexBuffer(ReadonlyColor lineColorVisible, ReadonlyColor lineColorHidden, RegionBase region, MeshStyle meshStyle) {
         super(lineColorVisible, lineColorHidden);
+        if (meshStyle == null) {
+            throw new IllegalArgumentException();
+        }
+        this.meshStyle = meshStyle;
+        viewDistance = DEFAULT_VIEW_DISTANCE;
+        frustum = new Frustum();
         onUpdateOrigin(getOrigin().set(region.getOriginReadonly()));
-        vertexCache = new ArrayList<Vector3>();
         vertexOffset = new ShapeTranslate();
+        cornerOffset = new Vector3();
+        corner = new Vector3();
+        pendingLower = new Vector3();
+        pendingUpper = new Vector3();
+        pendingOrigin = new Vector3();
         populateVertexCache(region);
     }
 
+    /**
+     * The result of a build: the sections, plus the spans they were built
+     * from so the next build can tell which blocks changed.
+     */
+    private static class Mesh {
+        private final List<MeshSection> sections;
+        private final int[] spanLower;
+        private final int[] spanUpper;
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+        private final int slabAxis;
+        /** In world coords; updated when the mesh is translated. */
+        private int originX;
+        private int originY;
+        private int originZ;
+
+        private Mesh(List<MeshSection> sections, int[] spanLower, int[] spanUpper,
+                int sizeX, int sizeY, int sizeZ, int slabAxis) {
+            this.sections = sections;
+            this.spanLower = spanLower;
+            this.spanUpper = spanUpper;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.slabAxis = slabAxis;
+        }
+    }
+
     @Override
     public void cleanup() {
-        removeVBO();
-        // No need to clear vertexCache; it's in local memory and will be GC'd.
+        cancelBackgroundWork();
+        removeVBOs();
+        // No need to clear the sections' vertices; they're in local memory and
+        // will be GC'd.
+    }
+
+    @Override
+    public void cancelBackgroundWork() {
+        if (pendingBuild != null) {
+            pendingBuild.cancel(true);
+            pendingBuild = null;
+        }
     }
 
     @Override
     protected ReadonlyVector3 getCornerReadonly() {
-        return vertexOffset.getTranslateXYZ();
+        return corner.set(vertexOffset.getTranslateXYZ()).add(cornerOffset);
     }
 
     @Override
-    protected void renderLines(MinecraftAccess mc, ReadonlyColor lineColor) {
+    protected void beginRender(MinecraftAccess mc) {
+        if (pendingBuild != null && pendingBuild.isDone()) {
+            finishBuild();
+        }
+        if (sections == null) {
+            return;
+        }
+        // Test the sections once per frame, rather than once per pass.
         GL11.glPushMatrix();
         vertexOffset.preRender();
+        frustum.update();
+        GL11.glPopMatrix();
+        for (int i = 0; i < sectionVisible.length; i++) {
+            sectionVisible[i] = sectionDetail[i] != null && sections.get(i).isInFrustum(frustum);
+        }
+    }
+
+    @Override
+    protected void renderLines(MinecraftAccess mc, ReadonlyColor lineColor) {
         lineColor.glApply(getAlphaBase() * 0.5);
-        if (vboId == 0) {
-            mc.startDrawing(GL11.GL_LINES);
-            for (Vector3 vertex : vertexCache) {
-                mc.addVertex(vertex);
+        if (sections == null) {
+            renderBox(mc,
+                    pendingLower.getX(), pendingUpper.getX() + 1.0,
+                    pendingLower.getY(), pendingUpper.getY() + 1.0,
+                    pendingLower.getZ(), pendingUpper.getZ() + 1.0);
+            return;
+        }
+        GL11.glPushMatrix();
+        vertexOffset.preRender();
+        MeshSection.beginRender();
+        for (int i = 0; i < sectionVisible.length; i++) {
+            if (sectionVisible[i]) {
+                sections.get(i).render(mc, sectionDetail[i]);
             }
-            mc.finishDrawing();
-        } else {
-            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
-            GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
-            GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, 0);
-            GL11.glDrawArrays(GL11.GL_LINES, 0, vertexCache.size());
-            GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
-            ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
         }
+        MeshSection.endRender();
         GL11.glPopMatrix();
     }
 
+    /**
+     * Moving a region by whole blocks doesn't change which blocks are inside
+     * it, so if the shape is the same we can keep the vertices and just shift
+     * them. Anything else needs a new mesh, which this base class can't
+     * animate; derived classes may re-override this method to support that.
+     */
     @Override
     public boolean updateIfPossible(RegionBase region, boolean animate) {
-        // No animation supported in this base class as we can't guarantee that
-        // even if the AABBs are the same dimension the blocks inside are the
-        // same.
-        // 
-        // Derived classes should (depending on the region type) be able to
-        // guarantee this and thus support animation. Re-override this method.
-        // The following helper methods may be relevant:
-        //  - getAABBLowerCornerReadonly()
-        //  - getAABBUpperCornerReadonly()
-        //  - populateVertexCache()
-        //  - vertexOffset.animateStart()
-        return false;
+        if (animate && getOriginReadonly().distanceSquared(region.getOriginReadonly()) > SHIFT_MAX_SQUARED) {
+            return false;
+        }
+        if (!translateVertexCache(region, animate)) {
+            return false;
+        }
+        animateShiftOrigin(region.getOriginReadonly(), animate);
+        return true;
+    }
+
+    public MeshStyle getMeshStyle() {
+        return meshStyle;
+    }
+
+    /**
+     * @return a key identifying the vertices for the region, independent of
+     *         where the region is, or null if the vertices can't be reused.
+     *         Used to translate rather than rebuild the vertices, and to look
+     *         up previously built vertices in the MeshCache.
+     *         <p>
+     *         This implementation always returns null. Derived classes
+     *         should override it for their target region type.
+     */
+    protected MeshKey createMeshKey(RegionBase region) {
+        return null;
+    }
+
+    /**
+     * If the region has the same MeshKey as the one the vertices were built
+     * for, i.e. it's the same shape moved by a whole number of blocks, reuse the
+     * vertices (and VBOs) by shifting vertexOffset rather than rebuilding.
+     * If a build is still in progress its result will be placed at the new
+     * position when it's done.
+     * 
+     * @return true if the vertices were reused, false if the caller should
+     *         call populateVertexCache instead.
+     */
+    protected boolean translateVertexCache(RegionBase region, boolean animate) {
+        if (meshKey == null || !meshKey.equals(createMeshKey(region))) {
+            return false;
+        }
+        setPendingAABB(region);
+        if (pendingBuild != null && sections != null) {
+            // The old vertices are for a different shape, so don't bother
+            // animating them. finishBuild will snap to the new position.
+            return true;
+        }
+        moveVertexOffset(animate && sections != null);
+        return true;
+    }
+
+    private void setPendingAABB(RegionBase region) {
+        region.getAABB(pendingLower, pendingUpper);
+        Units.WHOLE.clamp(pendingLower);
+        Units.WHOLE.clamp(pendingUpper);
+        pendingOrigin.set(
+                alignToGrid(pendingLower.getX(), region.getOriginReadonly().getX()),
+                alignToGrid(pendingLower.getY(), region.getOriginReadonly().getY()),
+                alignToGrid(pendingLower.getZ(), region.getOriginReadonly().getZ()));
+    }
+
+    /**
+     * @return the closest coordinate at or below the lower corner that's a
+     *         whole number of sections away from the region's origin.
+     */
+    private static int alignToGrid(double lower, double origin) {
+        final int anchor = (int) Math.floor(origin);
+        final int d = (int) lower - anchor;
+        if (d >= 0) {
+            return anchor + d / MeshSection.SIZE * MeshSection.SIZE;
+        }
+        return anchor - (-d + MeshSection.SIZE - 1) / MeshSection.SIZE * MeshSection.SIZE;
+    }
+
+    /** Move the current sections to the pending mesh origin. */
+    private void moveVertexOffset(boolean animate) {
+        cornerOffset.set(pendingLower).subtract(pendingOrigin);
+        if (animate) {
+            vertexOffset.animateStart(pendingOrigin, ANIM_DURATION);
+        } else {
+            vertexOffset.animateStop();
+            vertexOffset.getTranslateXYZ().set(pendingOrigin);
+        }
+        if (mesh != null) {
+            mesh.originX = (int) pendingOrigin.getX();
+            mesh.originY = (int) pendingOrigin.getY();
+            mesh.originZ = (int) pendingOrigin.getZ();
+        }
     }
 
     @Override
     public void updateObserverPosition(ReadonlyVector3 observerPosition) {
-        // TODO: maybe implement a "chunk" system to cache a section of vertices, based on player position.
+        if (this.observerPosition == null) {
+            this.observerPosition = observerPosition.copy();
+        } else {
+            this.observerPosition.set(observerPosition);
+        }
+        updateSectionDetail();
     }
 
-    protected void populateVertexCache(RegionBase region) {
-        removeVBO();
-        vertexCache.clear();
-
-        Vector3 aabbLower = vertexOffset.getTranslateXYZ();
-        Vector3 aabbUpper = new Vector3();
-        region.getAABB(aabbLower, aabbUpper);
-        Units.WHOLE.clamp(aabbLower);
-        Units.WHOLE.clamp(aabbUpper);
-
-        int offX = (int) aabbLower.getX();
-        int offY = (int) aabbLower.getY();
-        int offZ = (int) aabbLower.getZ();
-        int sizeX = (int) aabbUpper.getX() - offX + 1;
-        int sizeY = (int) aabbUpper.getY() - offY + 1;
-        int sizeZ = (int) aabbUpper.getZ() - offZ + 1;
-
-        populateVertexCacheWork(vertexCache, region, offX, offY, offZ, sizeX, sizeY, sizeZ);
-        createVBO();
+    public double getViewDistance() {
+        return viewDistance;
+    }
+
+    /** Only render sections within this distance of the observer. */
+    public void setViewDistance(double viewDistance) {
+        this.viewDistance = viewDistance;
+        updateSectionDetail();
+    }
+
+    private void updateSectionDetail() {
+        if (sections == null) {
+            return;
+        }
+        if (observerPosition == null) {
+            Arrays.fill(sectionDetail, MeshDetail.FULL);
+            return;
+        }
+        // Section coords are relative to the mesh origin.
+        final double x = observerPosition.getX() - vertexOffset.getTranslateXYZ().getX();
+        final double y = observerPosition.getY() - vertexOffset.getTranslateXYZ().getY();
+        final double z = observerPosition.getZ() - vertexOffset.getTranslateXYZ().getZ();
+        for (int i = 0; i < sectionDetail.length; i++) {
+            final double distanceSquared = sections.get(i).getDistanceSquared(x, y, z);
+            if (distanceSquared > viewDistance*viewDistance) {
+                sectionDetail[i] = null;
+            } else if (distanceSquared > DETAIL_DISTANCE_OUTLINE*DETAIL_DISTANCE_OUTLINE) {
+                sectionDetail[i] = MeshDetail.OUTLINE;
+            } else if (distanceSquared > DETAIL_DISTANCE_COARSE*DETAIL_DISTANCE_COARSE) {
+                sectionDetail[i] = MeshDetail.COARSE;
+            } else {
+                sectionDetail[i] = MeshDetail.FULL;
+            }
+        }
     }
 
     /**
-     * Loop through every block in the AABB, calling region.isInsideRegion at
-     * least once for each. For interior blocks bordering an exterior block,
-     * add the appropriate vertices to the cache.
+     * Start building a new set of vertices for the region, cancelling any
+     * build that's still in progress. Returns immediately; the current
+     * vertices (if any) continue to be rendered until the build is done.
      * <p>
-     * Derived classes should override this method to use a more intelligent
-     * algorithm if possible, tailored to the derived class's target region
-     * type. E.g., Bresenham's circle algorithm.
-     * <p>
-     * TODO: Enforce a size limit. Looping over millions of blocks in the main
-     *       thread is a bad idea. And even if the client can chug through
-     *       that, we still end up with a large vertex cache. This can slow
-     *       rendering to a crawl, even with a VBO.
+     * If the vertices are in the MeshCache they're swapped in immediately
+     * instead.
      */
-    protected void populateVertexCacheWork(List<Vector3> vertexCache, RegionBase region, int offX, int offY, int offZ, int sizeX, int sizeY, int sizeZ) {
-        for (int x = 0; x < sizeX; x++) {
-            for (int y = 0; y < sizeY; y++) {
-                for (int z = 0; z < sizeZ; z++) {
-                    if (!region.isInsideRegion(offX + x, offY + y, offZ + z)) {
-                        continue;
-                    }
-                    // Some of these calls to isInsideRegion will be outside
-                    // of the AABB, but that's not a problem.
-                    boolean west  = region.isInsideRegion(offX + x - 1, offY + y, offZ + z);
-                    boolean east  = region.isInsideRegion(offX + x + 1, offY + y, offZ + z);
-                    boolean down  = region.isInsideRegion(offX + x, offY + y - 1, offZ + z);
-                    boolean up    = region.isInsideRegion(offX + x, offY + y + 1, offZ + z);
-                    boolean north = region.isInsideRegion(offX + x, offY + y, offZ + z - 1);
-                    boolean south = region.isInsideRegion(offX + x, offY + y, offZ + z + 1);
-                    if (west && east && down && up && north && south) {
-                        // Interior block is completely surrounded by other
-                        // interior blocks.
-                        continue;
-                    }
-                    // No offset for the vertex coords. The vertexOffset
-                    // transform will handle that during rendering.
-                    double x0 = x + CUBE_MARGIN;
-                    double x1 = x + 1 - CUBE_MARGIN;
-                    double y0 = y + CUBE_MARGIN;
-                    double y1 = y + 1 - CUBE_MARGIN;
-                    double z0 = z + CUBE_MARGIN;
-                    double z1 = z + 1 - CUBE_MARGIN;
-                    if (!west || !down) {
-                        vertexCache.add(new Vector3(x0, y0, z0));
-                        vertexCache.add(new Vector3(x0, y0, z1));
-                    }
-                    if (!west || !up) {
-                        vertexCache.add(new Vector3(x0, y1, z0));
-                        vertexCache.add(new Vector3(x0, y1, z1));
-                    }
-                    if (!west || !north) {
-                        vertexCache.add(new Vector3(x0, y0, z0));
-                        vertexCache.add(new Vector3(x0, y1, z0));
-                    }
-                    if (!west || !south) {
-                        vertexCache.add(new Vector3(x0, y0, z1));
-                        vertexCache.add(new Vector3(x0, y1, z1));
-                    }
-                    if (!down || !north) {
-                        vertexCache.add(new Vector3(x0, y0, z0));
-                        vertexCache.add(new Vector3(x1, y0, z0));
-                    }
-                    if (!down || !south) {
-                        vertexCache.add(new Vector3(x0, y0, z1));
-                        vertexCache.add(new Vector3(x1, y0, z1));
-                    }
-                    if (!up || !north) {
-                        vertexCache.add(new Vector3(x0, y1, z0));
-                        vertexCache.add(new Vector3(x1, y1, z0));
-                    }
-                    if (!up || !south) {
-                        vertexCache.add(new Vector3(x0, y1, z1));
-                        vertexCache.add(new Vector3(x1, y1, z1));
-                    }
-                    if (!east || !down) {
-                        vertexCache.add(new Vector3(x1, y0, z0));
-                        vertexCache.add(new Vector3(x1, y0, z1));
-                    }
-                    if (!east || !up) {
-                        vertexCache.add(new Vector3(x1, y1, z0));
-                        vertexCache.add(new Vector3(x1, y1, z1));
+    protected void populateVertexCache(RegionBase region) {
+        cancelBackgroundWork();
+        setPendingAABB(region);
+
+        final MeshKey key = createMeshKey(region);
+        meshKey = key;
+        if (key != null) {
+            List<MeshSection> cached = MeshCache.get(key);
+            if (cached != null) {
+                setSections(cached, null);
+                return;
+            }
+        }
+
+        if (sections == null) {
+            moveVertexOffset(false);
+        }
+
+        final RegionBase snapshot = region.copyUsing(region.getOriginReadonly(), region.getAxis());
+        final Mesh prev = mesh;
+        final int offX = (int) pendingOrigin.getX();
+        final int offY = (int) pendingOrigin.getY();
+        final int offZ = (int) pendingOrigin.getZ();
+        final int sizeX = (int) pendingUpper.getX() - offX + 1;
+        final int sizeY = (int) pendingUpper.getY() - offY + 1;
+        final int sizeZ = (int) pendingUpper.getZ() - offZ + 1;
+        pendingBuild = MeshBuilder.submit(new Callable<Mesh>() {
+            @Override
+            public Mesh call() {
+                int[] spanLower = new int[sizeY * sizeZ];
+                int[] spanUpper = new int[sizeY * sizeZ];
+                populateSpans(snapshot, offX, offY, offZ, sizeX, sizeY, sizeZ, spanLower, spanUpper);
+                SpanMesher mesher = new SpanMesher(meshStyle, spanLower, spanUpper, sizeX, sizeY, sizeZ);
+                Mesh result = new Mesh(
+                        patchSections(prev, mesher, offX, offY, offZ, sizeY, sizeZ, spanLower, spanUpper),
+                        spanLower, spanUpper, sizeX, sizeY, sizeZ, mesher.getSlabAxis());
+                if (key != null) {
+                    MeshCache.put(key, result.sections);
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Mesh the spans, but if the previous mesh has the same origin and slab
+     * layout, only mesh the sections affected by the rows that differ and
+     * carry over the rest. E.g., growing a sphere by a half block changes a
+     * thin shell of blocks, so sections that are inside the sphere or far
+     * outside it stay as they were.
+     */
+    private static List<MeshSection> patchSections(Mesh prev, SpanMesher mesher,
+            int offX, int offY, int offZ, int sizeY, int sizeZ, int[] spanLower, int[] spanUpper) {
+        if (prev == null ||
+                prev.originX != offX || prev.originY != offY || prev.originZ != offZ ||
+                prev.slabAxis != mesher.getSlabAxis()) {
+            return meshSections(mesher);
+        }
+
+        // Find the blocks in the symmetric difference of each row's old and
+        // new spans.
+        boolean changed = false;
+        final int maxY = Math.max(sizeY, prev.sizeY);
+        final int maxZ = Math.max(sizeZ, prev.sizeZ);
+        for (int y = 0; y < maxY; y++) {
+            MeshBuilder.checkCancelled();
+            for (int z = 0; z < maxZ; z++) {
+                int newLower = 0;
+                int newUpper = -1;
+                if (y < sizeY && z < sizeZ) {
+                    newLower = spanLower[y * sizeZ + z];
+                    newUpper = spanUpper[y * sizeZ + z];
+                }
+                int oldLower = 0;
+                int oldUpper = -1;
+                if (y < prev.sizeY && z < prev.sizeZ) {
+                    oldLower = prev.spanLower[y * prev.sizeZ + z];
+                    oldUpper = prev.spanUpper[y * prev.sizeZ + z];
+                }
+                if (newLower > newUpper && oldLower > oldUpper) {
+                    continue;
+                } else if (newLower > newUpper) {
+                    mesher.markChanged(oldLower, oldUpper, y, z);
+                } else if (oldLower > oldUpper) {
+                    mesher.markChanged(newLower, newUpper, y, z);
+                } else {
+                    if (newLower != oldLower) {
+                        mesher.markChanged(Math.min(newLower, oldLower), Math.max(newLower, oldLower) - 1, y, z);
                     }
-                    if (!east || !north) {
-                        vertexCache.add(new Vector3(x1, y0, z0));
-                        vertexCache.add(new Vector3(x1, y1, z0));
+                    if (newUpper != oldUpper) {
+                        mesher.markChanged(Math.min(newUpper, oldUpper) + 1, Math.max(newUpper, oldUpper), y, z);
                     }
-                    if (!east || !south) {
-                        vertexCache.add(new Vector3(x1, y0, z1));
-                        vertexCache.add(new Vector3(x1, y1, z1));
+                    if (newLower == oldLower && newUpper == oldUpper) {
+                        continue;
                     }
                 }
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return new ArrayList<MeshSection>(prev.sections);
+        }
+
+        List<MeshSection> result = new ArrayList<MeshSection>();
+        for (MeshSection section : prev.sections) {
+            if (!mesher.isSectionChanged(section.getOriginX(), section.getOriginY(), section.getOriginZ())) {
+                result.add(section);
             }
         }
+        result.addAll(meshSections(mesher));
+        return result;
     }
 
     /**
-     * If the client supports VBOs, copy the contents of vertexCache to a new
-     * VBO, and register it. Any previous VBO will be removed.
+     * Mesh the changed sections, trimming their vertices to size before
+     * anything else can see them. The vertices are never modified after
+     * this, as they may end up shared with the render thread, the MeshCache,
+     * and later meshes that carry the sections over.
      */
-    protected void createVBO() {
-        if (!GLContext.getCapabilities().GL_ARB_vertex_buffer_object) {
-            vboId = 0;
-            return;
+    private static List<MeshSection> meshSections(SpanMesher mesher) {
+        List<MeshSection> result = mesher.mesh(MeshBuilder.getForkJoinPool());
+        for (MeshSection section : result) {
+            section.trimToSize();
+        }
+        return result;
+    }
+
+    /**
+     * Swap in the sections from the completed build. Must be called from the
+     * render thread, as it updates the VBOs.
+     */
+    private void finishBuild() {
+        final Future<Mesh> build = pendingBuild;
+        pendingBuild = null;
+        try {
+            Mesh result = build.get();
+            setSections(result.sections, result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Builds only read a private copy of the region, so a failure
+            // here is a bug. Rather than quietly rendering a stale mesh (or
+            // just the placeholder box) from now on, fail loudly.
+            throw new RuntimeException("internal error - unable to build mesh", e.getCause());
         }
+    }
 
-        // Convert down to 32-bit floating point to cut our VRAM usage in half.
-        FloatBuffer vbo = BufferUtils.createFloatBuffer(vertexCache.size() * 3);
-        for (Vector3 vertex : vertexCache) {
-            vbo.put((float) vertex.getX());
-            vbo.put((float) vertex.getY());
-            vbo.put((float) vertex.getZ());
+    /**
+     * Replace the current sections, and update the VBOs to match. Must be
+     * called from the render thread.
+     */
+    private void setSections(List<MeshSection> result, Mesh resultMesh) {
+        updateVBOs(result);
+        sections = result;
+        mesh = resultMesh;
+        sectionDetail = new MeshDetail[sections.size()];
+        sectionVisible = new boolean[sections.size()];
+        moveVertexOffset(false);
+        updateSectionDetail();
+    }
+
+    /**
+     * Find the span of inside blocks for each x-row of the mesh's box, for
+     * SpanMesher to outline. (offX, offY, offZ) is the mesh origin, which is
+     * aligned to the section grid rather than to the region's AABB. Rows are
+     * indexed by <code>y * sizeZ + z</code>; span bounds are inclusive and
+     * relative to the mesh origin. Empty rows must have a lower bound
+     * greater than the upper bound.
+     * <p>
+     * Called from the MeshBuilder thread, so this must only rely on the
+     * region snapshot passed in, never on mutable state.
+     * <p>
+     * Each row's span is solved for directly (see RegionSnapshot.getRowSpan)
+     * rather than by testing blocks, so this is O(sizeY * sizeZ) no matter
+     * how long the rows are.
+     * <p>
+     * TODO: Enforce a size limit. Even if the MeshBuilder thread can chug
+     *       through millions of blocks, we still end up with a large vertex
+     *       cache. This can slow rendering to a crawl, even with a VBO.
+     */
+    protected void populateSpans(RegionBase region, int offX, int offY, int offZ, int sizeX, int sizeY, int sizeZ, int[] spanLower, int[] spanUpper) {
+        final RegionSnapshot inside = region.getSnapshot();
+        final int[] span = new int[2];
+        for (int y = 0; y < sizeY; y++) {
+            MeshBuilder.checkCancelled();
+            for (int z = 0; z < sizeZ; z++) {
+                final int row = y * sizeZ + z;
+                spanLower[row] = 0;
+                spanUpper[row] = -1;
+                if (inside.getRowSpan(offY + y, offZ + z, span)) {
+                    // Clip to the AABB, widening first so that unbounded
+                    // spans can't overflow.
+                    final long lower = Math.max(0L, (long) span[0] - offX);
+                    final long upper = Math.min(sizeX - 1L, (long) span[1] - offX);
+                    if (lower <= upper) {
+                        spanLower[row] = (int) lower;
+                        spanUpper[row] = (int) upper;
+                    }
+                }
+            }
         }
-        vbo.flip();
+    }
 
-        // Register the VBO, copying the float buffer into VRAM.
-        removeVBO();
-        vboId = ARBVertexBufferObject.glGenBuffersARB();
-        ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vboId);
-        ARBVertexBufferObject.glBufferDataARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, vbo, ARBVertexBufferObject.GL_STATIC_DRAW_ARB);
-        ARBVertexBufferObject.glBindBufferARB(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB, 0);
+    /**
+     * Sections carried over from the current sections keep their VBOs as
+     * they are. Sections replacing one with the same origin take over its
+     * VBOs (see MeshSection.updateVBOs), and the rest get new VBOs. VBOs of
+     * current sections that aren't needed anymore are removed.
+     */
+    private void updateVBOs(List<MeshSection> result) {
+        Set<MeshSection> next = new HashSet<MeshSection>(result);
+        Set<MeshSection> kept = new HashSet<MeshSection>();
+        Map<Long, MeshSection> replaced = new HashMap<Long, MeshSection>();
+        if (sections != null) {
+            for (MeshSection section : sections) {
+                if (next.contains(section)) {
+                    kept.add(section);
+                } else {
+                    replaced.put(getOriginKey(section), section);
+                }
+            }
+        }
+        for (MeshSection section : result) {
+            if (kept.contains(section)) {
+                continue;
+            }
+            MeshSection prev = replaced.remove(getOriginKey(section));
+            if (prev == null) {
+                section.createVBOs();
+            } else {
+                section.updateVBOs(prev);
+            }
+        }
+        for (MeshSection section : replaced.values()) {
+            section.removeVBOs();
+        }
+    }
 
-        // We could clear vertexCache at this point as it's redundant, but keep
-        // it around just in case the VBO gets removed prematurely.
+    private static Long getOriginKey(MeshSection section) {
+        return ((long) section.getOriginX() << 42) |
+                ((long) section.getOriginY() << 21) |
+                section.getOriginZ();
     }
 
-    protected void removeVBO() {
-        if (vboId == 0) {
+    protected void removeVBOs() {
+        if (sections == null) {
             return;
         }
-        ARBVertexBufferObject.glDeleteBuffersARB(vboId);
-        vboId = 0;
+        for (MeshSection section : sections) {
+            section.removeVBOs();
+        }
     }
 }
@@ -22,10 +22,14 @@ public class ShapeManager {
     private final LibShapeDraw libShapeDraw;
     private RenderBase mainShape;
     private RenderBase prevShape;
+    private MeshStyle meshStyle;
+    private double viewDistance;
 
     public ShapeManager(Controller controller) {
         this.controller = controller;
         libShapeDraw = new LibShapeDraw().verifyInitialized();
+        meshStyle = MeshStyle.EDGES;
+        viewDistance = RenderVertexBuffer.DEFAULT_VIEW_DISTANCE;
     }
 
     public void reset() {
@@ -64,6 +68,7 @@ public class ShapeManager {
         }
         prevShape = mainShape;
         mainShape = null;
+        prevShape.cancelBackgroundWork();
         prevShape.animateFadeOut(animate);
     }
 
@@ -76,14 +81,71 @@ public class ShapeManager {
         } else if (r == RegionType.CUBOID) {
             return new RenderCuboid(colorVisible, colorHidden, (RegionCuboid) region);
         } else if (r == RegionType.CYLINDER) {
-            return new RenderCylinder(colorVisible, colorHidden, (RegionCylinder) region);
+            RenderVertexBuffer shape = new RenderCylinder(colorVisible, colorHidden, (RegionCylinder) region, meshStyle);
+            shape.setViewDistance(viewDistance);
+            return shape;
         } else if (r == RegionType.SPHERE) {
-            return new RenderSphere(colorVisible, colorHidden, (RegionSphere) region);
+            RenderVertexBuffer shape = new RenderSphere(colorVisible, colorHidden, (RegionSphere) region, meshStyle);
+            shape.setViewDistance(viewDistance);
+            return shape;
         } else {
             throw new IllegalStateException();
         }
     }
 
+    public MeshStyle getMeshStyle() {
+        return meshStyle;
+    }
+
+    /**
+     * Change how sphere and cylinder regions are outlined. The current shape,
+     * if any, is rebuilt right away.
+     */
+    public void setMeshStyle(MeshStyle meshStyle) {
+        if (meshStyle == null) {
+            throw new IllegalArgumentException();
+        }
+        if (this.meshStyle == meshStyle) {
+            return;
+        }
+        this.meshStyle = meshStyle;
+        if (mainShape instanceof RenderVertexBuffer) {
+            final RegionBase region = controller.getCurRegion();
+            removeShape(false);
+            updateRegion(region, false);
+        }
+    }
+
+    public double getViewDistance() {
+        return viewDistance;
+    }
+
+    /**
+     * Change how far away the sections of a sphere or cylinder region can be
+     * and still be rendered.
+     */
+    public void setViewDistance(double viewDistance) {
+        if (viewDistance <= 0.0) {
+            throw new IllegalArgumentException();
+        }
+        this.viewDistance = viewDistance;
+        if (mainShape instanceof RenderVertexBuffer) {
+            ((RenderVertexBuffer) mainShape).setViewDistance(viewDistance);
+        }
+    }
+
+    public long getMeshCacheMaxBytes() {
+        return MeshCache.getMaxBytes();
+    }
+
+    /**
+     * Change how much memory can be used to keep recently built sphere and
+     * cylinder meshes around for reuse. Zero disables the cache.
+     */
+    public void setMeshCacheMaxBytes(long maxBytes) {
+        MeshCache.setMaxBytes(maxBytes);
+    }
+
     public void updateObserverPosition(ReadonlyVector3 playerCoords) {
         if (mainShape != null) {
             mainShape.updateObserverPosition(playerCoords);
@@ -0,0 +1,154 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import libshapedraw.MinecraftAccess;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+ * The translucent shell of a sphere or cylinder, centered on (0,0,0) with a
+ * radius of 1. Renderers scale it to the actual shape.
+ * <p>
+ * This is the same geometry GLU's Sphere and Cylinder produce, except that
+ * it's tessellated only once rather than every frame. Each instance is
+ * shared by every shape of that type.
+ * <p>
+ * Must only be used from the render thread.
+ * 
+ * @author bencvt
+ */
+public class ShellMesh {
+    public static final int SLICES = 24;
+    public static final int SPHERE_STACKS = 24;
+
+    /** Lazily instantiated. */
+    private static ShellMesh sphere;
+    /** Lazily instantiated. */
+    private static ShellMesh cylinder;
+
+    private final GeometryBuffer lines;
+    private final GeometryBuffer fill;
+
+    private ShellMesh(int fillMode) {
+        lines = new GeometryBuffer(GL11.GL_LINES);
+        fill = new GeometryBuffer(fillMode);
+    }
+
+    /**
+     * @return a sphere oriented like GLU's: the poles are on the z axis.
+     *         Its fill has both sides (i.e., GLU_INSIDE and GLU_OUTSIDE),
+     *         so it's visible from inside even with face culling.
+     */
+    public static ShellMesh getSphere() {
+        if (sphere == null) {
+            sphere = new ShellMesh(GL11.GL_TRIANGLES);
+            sphere.buildSphere();
+        }
+        return sphere;
+    }
+
+    /**
+     * @return an open-ended cylinder oriented like GLU's: it extends from
+     *         z=0 to z=1.
+     */
+    public static ShellMesh getCylinder() {
+        if (cylinder == null) {
+            cylinder = new ShellMesh(GL11.GL_QUADS);
+            cylinder.buildCylinder();
+        }
+        return cylinder;
+    }
+
+    public void renderLines(MinecraftAccess mc) {
+        lines.render(mc);
+    }
+
+    public void renderFill(MinecraftAccess mc) {
+        fill.render(mc);
+    }
+
+    private void buildSphere() {
+        // x, y, z for each point on the sphere, indexed by [stack][slice].
+        final double[][][] p = new double[SPHERE_STACKS + 1][SLICES + 1][];
+        for (int i = 0; i <= SPHERE_STACKS; i++) {
+            final double rho = i * Math.PI / SPHERE_STACKS;
+            for (int j = 0; j <= SLICES; j++) {
+                final double theta = (j == SLICES ? 0 : j) * 2.0 * Math.PI / SLICES;
+                p[i][j] = new double[] {
+                        Math.cos(theta) * Math.sin(rho),
+                        Math.sin(theta) * Math.sin(rho),
+                        Math.cos(rho)};
+            }
+        }
+
+        final VertexArray v = lines.getVertices();
+        // Stack lines, i.e. latitude. None at the poles.
+        for (int i = 1; i < SPHERE_STACKS; i++) {
+            for (int j = 0; j < SLICES; j++) {
+                add(v, p[i][j]);
+                add(v, p[i][j + 1]);
+            }
+        }
+        // Slice lines, i.e. longitude.
+        for (int j = 0; j < SLICES; j++) {
+            for (int i = 0; i < SPHERE_STACKS; i++) {
+                add(v, p[i][j]);
+                add(v, p[i + 1][j]);
+            }
+        }
+        lines.invalidate();
+
+        final VertexArray f = fill.getVertices();
+        for (int i = 0; i < SPHERE_STACKS; i++) {
+            for (int j = 0; j < SLICES; j++) {
+                final double[] a = p[i][j];
+                final double[] b = p[i + 1][j];
+                final double[] c = p[i + 1][j + 1];
+                final double[] d = p[i][j + 1];
+                // Skip the degenerate triangle at either pole.
+                if (i < SPHERE_STACKS - 1) {
+                    // outside, then inside
+                    add(f, a); add(f, b); add(f, c);
+                    add(f, a); add(f, c); add(f, b);
+                }
+                if (i > 0) {
+                    add(f, a); add(f, c); add(f, d);
+                    add(f, a); add(f, d); add(f, c);
+                }
+            }
+        }
+        fill.invalidate();
+    }
+
+    private void buildCylinder() {
+        final double[] x = new double[SLICES + 1];
+        final double[] y = new double[SLICES + 1];
+        for (int i = 0; i <= SLICES; i++) {
+            final double theta = (i == SLICES ? 0 : i) * 2.0 * Math.PI / SLICES;
+            x[i] = Math.cos(theta);
+            y[i] = Math.sin(theta);
+        }
+
+        final VertexArray v = lines.getVertices();
+        for (int i = 0; i < SLICES; i++) {
+            // rings
+            v.add(x[i], y[i], 0.0).add(x[i + 1], y[i + 1], 0.0);
+            v.add(x[i], y[i], 1.0).add(x[i + 1], y[i + 1], 1.0);
+            // length lines
+            v.add(x[i], y[i], 0.0).add(x[i], y[i], 1.0);
+        }
+        lines.invalidate();
+
+        final VertexArray f = fill.getVertices();
+        for (int i = 0; i < SLICES; i++) {
+            f.add(x[i], y[i], 0.0);
+            f.add(x[i], y[i], 1.0);
+            f.add(x[i + 1], y[i + 1], 1.0);
+            f.add(x[i + 1], y[i + 1], 0.0);
+        }
+        fill.invalidate();
+    }
+
+    private static void add(VertexArray v, double[] xyz) {
+        v.add(xyz[0], xyz[1], xyz[2]);
+    }
+}
@@ -0,0 +1,744 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Turn a region, described as one span of inside blocks per x-row, into
+ * sections of line vertices outlining the region's surface blocks.
+ * <p>
+ * Only blocks on the surface are visited: blocks in the core of a row (i.e.,
+ * whose four neighboring rows also contain them) are skipped outright, so the
+ * cost grows with the surface area of the region rather than its volume.
+ * <p>
+ * The mesher works in a box of sizeX * sizeY * sizeZ blocks (called the
+ * AABB below) whose lower corner is the mesh origin. RenderVertexBuffer puts
+ * the mesh origin on a grid of SIZE-block sections anchored to the region's
+ * origin, at or below the lower corner of the region's actual AABB, so that
+ * sections line up from one build to the next as the region changes.
+ * <p>
+ * Rows are indexed by <code>y * sizeZ + z</code>. Span bounds are inclusive
+ * x coordinates relative to the mesh origin. A row is empty if its lower
+ * bound is greater than its upper bound.
+ * <p>
+ * The output is split into MeshSections on that grid, i.e. aligned to the
+ * mesh origin. Each line belongs to exactly one section, which is the one
+ * containing the block or edge it outlines. An edge on the boundary between
+ * two sections goes to the upper section, except as noted below.
+ * <p>
+ * Sections are grouped into slabs, one section thick along the AABB's
+ * longest axis. Slabs are meshed independently, optionally in parallel on a
+ * ForkJoinPool, and the sections are output in slab order. An edge lying on
+ * the plane between two slabs always belongs to the lower slab if it has any
+ * inside blocks next to the edge, so the output is identical no matter how
+ * many threads did the work.
+ * <p>
+ * Every section also gets lower-detail COARSE and OUTLINE versions of its
+ * lines (see MeshDetail). These are always drawn as deduplicated lattice
+ * edges, even in BLOCKS style.
+ * <p>
+ * The lines of a section only depend on the blocks in and immediately
+ * around it. If the caller knows which blocks changed since a previous
+ * mesh with the same origin (see markChanged), only the sections near those
+ * blocks are meshed, and the rest of the previous sections can be reused.
+ * 
+ * @author bencvt
+ */
+public class SpanMesher {
+    /** Bits per lattice coordinate in a packed edge key. */
+    public static final int KEY_COORD_BITS = 20;
+    public static final int MAX_SIZE = (1 << KEY_COORD_BITS) - 2;
+    /** Spacing of the grid lines on flat faces in COARSE detail. */
+    public static final int COARSE_GRID_SIZE = 4;
+    private static final int KEY_COORD_MASK = (1 << KEY_COORD_BITS) - 1;
+
+    private static final int AXIS_X = 0;
+    private static final int AXIS_Y = 1;
+    private static final int AXIS_Z = 2;
+
+    private final MeshStyle style;
+    private final int[] spanLower;
+    private final int[] spanUpper;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int slabAxis;
+    private final Slab[] slabs;
+    /** The number of sections in each slab, along each axis. */
+    private final int slabSectionsX;
+    private final int slabSectionsY;
+    private final int slabSectionsZ;
+    /** The MeshBuilder build that called mesh, if any. */
+    private Future<?> build;
+
+    /** The edges and sections belonging to a single slab. */
+    private static class Slab {
+        /** Inclusive block coords along the slab axis. */
+        private final int lower;
+        private final int upper;
+        private final LongHashSet edges;
+        /** Only used in MERGED style: every edge key, in the order added. */
+        private long[] edgeKeys;
+        private int edgeCount;
+        /** Vertices for each section and detail level, allocated as needed. */
+        private final VertexArray[][] sections;
+        /**
+         * Which sections need meshing, or null if they all do. Only set by
+         * markChanged.
+         */
+        private boolean[] changed;
+        private boolean anyChanged;
+
+        private Slab(MeshStyle style, int lower, int upper, int sectionCount) {
+            this.lower = lower;
+            this.upper = upper;
+            edges = new LongHashSet();
+            edgeKeys = style == MeshStyle.MERGED ? new long[1024] : null;
+            sections = new VertexArray[sectionCount][];
+        }
+    }
+
+    /** Mesh a range of slabs, splitting the range in half until it's a single slab. */
+    private class SlabTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        private SlabTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                meshSlab(slabs[from]);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new SlabTask(from, mid), new SlabTask(mid, to));
+        }
+    }
+
+    public SpanMesher(MeshStyle style, int[] spanLower, int[] spanUpper, int sizeX, int sizeY, int sizeZ) {
+        if (style == null || spanLower.length != sizeY * sizeZ || spanUpper.length != sizeY * sizeZ) {
+            throw new IllegalArgumentException();
+        }
+        if (sizeX > MAX_SIZE || sizeY > MAX_SIZE || sizeZ > MAX_SIZE) {
+            throw new IllegalArgumentException("region too large to mesh");
+        }
+        this.style = style;
+        this.spanLower = spanLower;
+        this.spanUpper = spanUpper;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+
+        // Ties go to y, matching the row order within a slab.
+        int axis = AXIS_Y;
+        if (sizeX > getSize(axis)) {
+            axis = AXIS_X;
+        }
+        if (sizeZ > getSize(axis)) {
+            axis = AXIS_Z;
+        }
+        slabAxis = axis;
+        slabSectionsX = slabAxis == AXIS_X ? 1 : getSectionCount(sizeX);
+        slabSectionsY = slabAxis == AXIS_Y ? 1 : getSectionCount(sizeY);
+        slabSectionsZ = slabAxis == AXIS_Z ? 1 : getSectionCount(sizeZ);
+        slabs = new Slab[getSectionCount(getSize(slabAxis))];
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = new Slab(style, i * MeshSection.SIZE,
+                    Math.min((i + 1) * MeshSection.SIZE, getSize(slabAxis)) - 1,
+                    slabSectionsX * slabSectionsY * slabSectionsZ);
+        }
+    }
+
+    private static int getSectionCount(int size) {
+        return (size + MeshSection.SIZE - 1) / MeshSection.SIZE;
+    }
+
+    private int getSize(int axis) {
+        if (axis == AXIS_X) {
+            return sizeX;
+        } else if (axis == AXIS_Y) {
+            return sizeY;
+        } else {
+            return sizeZ;
+        }
+    }
+
+    private static int getCoord(int axis, int x, int y, int z) {
+        if (axis == AXIS_X) {
+            return x;
+        } else if (axis == AXIS_Y) {
+            return y;
+        } else {
+            return z;
+        }
+    }
+
+    /**
+     * @return the axis the slabs are stacked along: 0, 1, or 2 for x, y, or
+     *         z. Previous sections can only be reused if this is the same.
+     */
+    public int getSlabAxis() {
+        return slabAxis;
+    }
+
+    /**
+     * Only mesh the sections that are affected by a change to the blocks in
+     * the specified range of an x-row. Can be called any number of times
+     * before mesh. Rows and blocks outside the AABB are allowed; they're the
+     * blocks that used to be part of a larger region.
+     * <p>
+     * A lattice edge depends on the four blocks around it, so each changed
+     * block affects the sections containing it and its neighbors.
+     */
+    public void markChanged(int lowerX, int upperX, int y, int z) {
+        if (lowerX > upperX) {
+            throw new IllegalArgumentException();
+        }
+        final int x0 = getSectionIndex(AXIS_X, clampLattice(AXIS_X, lowerX - 1));
+        final int x1 = getSectionIndex(AXIS_X, clampLattice(AXIS_X, upperX + 1));
+        final int y0 = getSectionIndex(AXIS_Y, clampLattice(AXIS_Y, y - 1));
+        final int y1 = getSectionIndex(AXIS_Y, clampLattice(AXIS_Y, y + 1));
+        final int z0 = getSectionIndex(AXIS_Z, clampLattice(AXIS_Z, z - 1));
+        final int z1 = getSectionIndex(AXIS_Z, clampLattice(AXIS_Z, z + 1));
+        final int slab0 = getSlabIndex(clampLattice(slabAxis, getCoord(slabAxis, lowerX - 1, y - 1, z - 1)));
+        final int slab1 = getSlabIndex(clampLattice(slabAxis, getCoord(slabAxis, upperX + 1, y + 1, z + 1)));
+        if (slabs[0].changed == null) {
+            for (Slab slab : slabs) {
+                slab.changed = new boolean[slab.sections.length];
+            }
+        }
+        for (int i = slab0; i <= slab1; i++) {
+            final Slab slab = slabs[i];
+            for (int ix = x0; ix <= x1; ix++) {
+                for (int iy = y0; iy <= y1; iy++) {
+                    for (int iz = z0; iz <= z1; iz++) {
+                        slab.changed[(ix * slabSectionsY + iy) * slabSectionsZ + iz] = true;
+                    }
+                }
+            }
+            slab.anyChanged = true;
+        }
+    }
+
+    /**
+     * @return true if a section with the specified origin would be output
+     *         by mesh, or if it's outside the AABB. I.e., whether a previous
+     *         section with that origin is out of date.
+     */
+    public boolean isSectionChanged(int originX, int originY, int originZ) {
+        final int slab = getCoord(slabAxis, originX, originY, originZ) / MeshSection.SIZE;
+        final int ix = slabAxis == AXIS_X ? 0 : originX / MeshSection.SIZE;
+        final int iy = slabAxis == AXIS_Y ? 0 : originY / MeshSection.SIZE;
+        final int iz = slabAxis == AXIS_Z ? 0 : originZ / MeshSection.SIZE;
+        if (slab >= slabs.length || ix >= slabSectionsX || iy >= slabSectionsY || iz >= slabSectionsZ) {
+            return true;
+        }
+        return isChanged(slabs[slab], ix, iy, iz);
+    }
+
+    private boolean isChanged(Slab slab, int ix, int iy, int iz) {
+        return slab.changed == null || slab.changed[(ix * slabSectionsY + iy) * slabSectionsZ + iz];
+    }
+
+    /** @return true if any section in the slab might contain the lattice (y,z) edges. */
+    private boolean isRowChanged(Slab slab, int y, int z) {
+        if (slab.changed == null) {
+            return true;
+        }
+        final int y0 = getSectionIndex(AXIS_Y, y);
+        final int y1 = getSectionIndex(AXIS_Y, y + 1);
+        final int z0 = getSectionIndex(AXIS_Z, z);
+        final int z1 = getSectionIndex(AXIS_Z, z + 1);
+        for (int ix = 0; ix < slabSectionsX; ix++) {
+            if (isChanged(slab, ix, y0, z0) || isChanged(slab, ix, y0, z1) ||
+                    isChanged(slab, ix, y1, z0) || isChanged(slab, ix, y1, z1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int clampLattice(int axis, int coord) {
+        return Math.max(0, Math.min(coord, getSize(axis)));
+    }
+
+    private int getSlabIndex(int coord) {
+        return Math.min(coord / MeshSection.SIZE, slabs.length - 1);
+    }
+
+    /**
+     * Mesh every slab on the current thread. If markChanged was called, only
+     * the changed sections are output.
+     */
+    public List<MeshSection> mesh() {
+        build = MeshBuilder.getCurrentBuild();
+        for (Slab slab : slabs) {
+            meshSlab(slab);
+        }
+        return getSections();
+    }
+
+    /**
+     * Mesh the slabs in parallel, blocking until they're all done. The
+     * output is exactly the same as mesh().
+     */
+    public List<MeshSection> mesh(ForkJoinPool pool) {
+        if (slabs.length < 2) {
+            return mesh();
+        }
+        build = MeshBuilder.getCurrentBuild();
+        pool.invoke(new SlabTask(0, slabs.length));
+        return getSections();
+    }
+
+    private List<MeshSection> getSections() {
+        List<MeshSection> result = new ArrayList<MeshSection>();
+        for (Slab slab : slabs) {
+            for (int ix = 0; ix < slabSectionsX; ix++) {
+                for (int iy = 0; iy < slabSectionsY; iy++) {
+                    for (int iz = 0; iz < slabSectionsZ; iz++) {
+                        VertexArray[] vertices = slab.sections[(ix * slabSectionsY + iy) * slabSectionsZ + iz];
+                        if (vertices != null) {
+                            result.add(new MeshSection(
+                                    getSectionOrigin(slab, AXIS_X, ix),
+                                    getSectionOrigin(slab, AXIS_Y, iy),
+                                    getSectionOrigin(slab, AXIS_Z, iz),
+                                    vertices));
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the section within a slab containing the
+     *         specified block or lattice coord. The upper face of the AABB
+     *         belongs to the last section.
+     */
+    private int getSectionIndex(int axis, int coord) {
+        if (axis == slabAxis) {
+            return 0;
+        }
+        return Math.min(coord / MeshSection.SIZE, getSectionCount(getSize(axis)) - 1);
+    }
+
+    private int getSectionOrigin(Slab slab, int axis, int index) {
+        return axis == slabAxis ? slab.lower : index * MeshSection.SIZE;
+    }
+
+    /** @return the section's vertices, indexed by MeshDetail ordinal. */
+    private VertexArray[] getSectionVertices(Slab slab, int ix, int iy, int iz) {
+        final int index = (ix * slabSectionsY + iy) * slabSectionsZ + iz;
+        if (slab.sections[index] == null) {
+            slab.sections[index] = new VertexArray[MeshDetail.values().length];
+            for (int i = 0; i < slab.sections[index].length; i++) {
+                slab.sections[index][i] = new VertexArray();
+            }
+        }
+        return slab.sections[index];
+    }
+
+    private void meshSlab(Slab slab) {
+        if (slab.changed != null && !slab.anyChanged) {
+            return;
+        }
+        addSlabBlocks(slab);
+        if (style == MeshStyle.MERGED) {
+            addMergedEdges(slab);
+        }
+    }
+
+    private void addSlabBlocks(Slab slab) {
+        final int x0 = slabAxis == AXIS_X ? slab.lower : 0;
+        final int x1 = slabAxis == AXIS_X ? slab.upper : sizeX - 1;
+        final int y0 = slabAxis == AXIS_Y ? slab.lower : 0;
+        final int y1 = slabAxis == AXIS_Y ? slab.upper : sizeY - 1;
+        final int z0 = slabAxis == AXIS_Z ? slab.lower : 0;
+        final int z1 = slabAxis == AXIS_Z ? slab.upper : sizeZ - 1;
+        for (int y = y0; y <= y1; y++) {
+            MeshBuilder.checkCancelled(build);
+            for (int z = z0; z <= z1; z++) {
+                final int row = y * sizeZ + z;
+                final int lower = spanLower[row];
+                final int upper = spanUpper[row];
+                if (lower > upper || lower > x1 || upper < x0 || !isRowChanged(slab, y, z)) {
+                    continue;
+                }
+                final int rowDown  = y > 0         ? row - sizeZ : -1;
+                final int rowUp    = y < sizeY - 1 ? row + sizeZ : -1;
+                final int rowNorth = z > 0         ? row - 1     : -1;
+                final int rowSouth = z < sizeZ - 1 ? row + 1     : -1;
+
+                // Blocks in [coreLower, coreUpper] are completely surrounded
+                // by other interior blocks. Rows on the edge of the AABB have
+                // no core.
+                int coreLower = upper + 1;
+                int coreUpper = upper;
+                if (rowDown >= 0 && rowUp >= 0 && rowNorth >= 0 && rowSouth >= 0) {
+                    coreLower = Math.max(lower + 1, Math.max(
+                            Math.max(spanLower[rowDown], spanLower[rowUp]),
+                            Math.max(spanLower[rowNorth], spanLower[rowSouth])));
+                    coreUpper = Math.min(upper - 1, Math.min(
+                            Math.min(spanUpper[rowDown], spanUpper[rowUp]),
+                            Math.min(spanUpper[rowNorth], spanUpper[rowSouth])));
+                }
+
+                final int end = Math.min(upper, x1);
+                for (int x = Math.max(lower, x0); x <= end; x++) {
+                    if (x >= coreLower && x <= coreUpper) {
+                        x = coreUpper;
+                        continue;
+                    }
+                    addBlock(slab, x, y, z,
+                            x > lower,
+                            x < upper,
+                            isInsideRow(rowDown, x),
+                            isInsideRow(rowUp, x),
+                            isInsideRow(rowNorth, x),
+                            isInsideRow(rowSouth, x));
+                }
+            }
+        }
+    }
+
+    private boolean isInsideRow(int row, int x) {
+        return row >= 0 && x >= spanLower[row] && x <= spanUpper[row];
+    }
+
+    /** @return true if the block at the AABB-relative coords is inside. */
+    public boolean isInside(int x, int y, int z) {
+        if (y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            return false;
+        }
+        return isInsideRow(y * sizeZ + z, x);
+    }
+
+    /**
+     * Add the edges of a single surface block that border at least one
+     * exterior neighbor.
+     */
+    private void addBlock(Slab slab, int x, int y, int z,
+            boolean west, boolean east, boolean down, boolean up, boolean north, boolean south) {
+        if (style == MeshStyle.BLOCKS) {
+            final int ix = getSectionIndex(AXIS_X, x);
+            final int iy = getSectionIndex(AXIS_Y, y);
+            final int iz = getSectionIndex(AXIS_Z, z);
+            if (isChanged(slab, ix, iy, iz)) {
+                addBlockEdges(getSectionVertices(slab, ix, iy, iz)[MeshDetail.FULL.ordinal()],
+                        x - getSectionOrigin(slab, AXIS_X, ix),
+                        y - getSectionOrigin(slab, AXIS_Y, iy),
+                        z - getSectionOrigin(slab, AXIS_Z, iz),
+                        west, east, down, up, north, south);
+            }
+            // Continue on to add lattice edges for the other detail levels.
+        }
+        if (!west || !down) {
+            addLatticeEdge(slab, AXIS_Z, x, y, z);
+        }
+        if (!west || !up) {
+            addLatticeEdge(slab, AXIS_Z, x, y + 1, z);
+        }
+        if (!west || !north) {
+            addLatticeEdge(slab, AXIS_Y, x, y, z);
+        }
+        if (!west || !south) {
+            addLatticeEdge(slab, AXIS_Y, x, y, z + 1);
+        }
+        if (!down || !north) {
+            addLatticeEdge(slab, AXIS_X, x, y, z);
+        }
+        if (!down || !south) {
+            addLatticeEdge(slab, AXIS_X, x, y, z + 1);
+        }
+        if (!up || !north) {
+            addLatticeEdge(slab, AXIS_X, x, y + 1, z);
+        }
+        if (!up || !south) {
+            addLatticeEdge(slab, AXIS_X, x, y + 1, z + 1);
+        }
+        if (!east || !down) {
+            addLatticeEdge(slab, AXIS_Z, x + 1, y, z);
+        }
+        if (!east || !up) {
+            addLatticeEdge(slab, AXIS_Z, x + 1, y + 1, z);
+        }
+        if (!east || !north) {
+            addLatticeEdge(slab, AXIS_Y, x + 1, y, z);
+        }
+        if (!east || !south) {
+            addLatticeEdge(slab, AXIS_Y, x + 1, y, z + 1);
+        }
+    }
+
+    /**
+     * Outline a single block as a slightly shrunken cube, given whether each
+     * of its six neighbors is also an interior block.
+     */
+    public static void addBlockEdges(VertexArray out, int x, int y, int z,
+            boolean west, boolean east, boolean down, boolean up, boolean north, boolean south) {
+        // No offset for the vertex coords. The section origin and the
+        // vertexOffset transform will handle that during rendering.
+        double x0 = x + RenderBase.CUBE_MARGIN;
+        double x1 = x + 1 - RenderBase.CUBE_MARGIN;
+        double y0 = y + RenderBase.CUBE_MARGIN;
+        double y1 = y + 1 - RenderBase.CUBE_MARGIN;
+        double z0 = z + RenderBase.CUBE_MARGIN;
+        double z1 = z + 1 - RenderBase.CUBE_MARGIN;
+        if (!west || !down) {
+            out.add(x0, y0, z0);
+            out.add(x0, y0, z1);
+        }
+        if (!west || !up) {
+            out.add(x0, y1, z0);
+            out.add(x0, y1, z1);
+        }
+        if (!west || !north) {
+            out.add(x0, y0, z0);
+            out.add(x0, y1, z0);
+        }
+        if (!west || !south) {
+            out.add(x0, y0, z1);
+            out.add(x0, y1, z1);
+        }
+        if (!down || !north) {
+            out.add(x0, y0, z0);
+            out.add(x1, y0, z0);
+        }
+        if (!down || !south) {
+            out.add(x0, y0, z1);
+            out.add(x1, y0, z1);
+        }
+        if (!up || !north) {
+            out.add(x0, y1, z0);
+            out.add(x1, y1, z0);
+        }
+        if (!up || !south) {
+            out.add(x0, y1, z1);
+            out.add(x1, y1, z1);
+        }
+        if (!east || !down) {
+            out.add(x1, y0, z0);
+            out.add(x1, y0, z1);
+        }
+        if (!east || !up) {
+            out.add(x1, y1, z0);
+            out.add(x1, y1, z1);
+        }
+        if (!east || !north) {
+            out.add(x1, y0, z0);
+            out.add(x1, y1, z0);
+        }
+        if (!east || !south) {
+            out.add(x1, y0, z1);
+            out.add(x1, y1, z1);
+        }
+    }
+
+    /**
+     * Pack a lattice edge into a single non-negative long: the axis the edge
+     * runs along, plus the lattice point at its lower end. Lattice coords
+     * range from 0 to size inclusive.
+     */
+    public static long packEdge(int axis, int x, int y, int z) {
+        return ((long) axis << (KEY_COORD_BITS * 3))
+                | ((long) x << (KEY_COORD_BITS * 2))
+                | ((long) y << KEY_COORD_BITS)
+                | z;
+    }
+
+    /**
+     * Add the unit lattice edge running along the specified axis from the
+     * lattice point (x,y,z), unless it has already been added. In MERGED
+     * style the edge is only recorded here; addMergedEdges outputs it later
+     * as part of a longer run.
+     */
+    private void addLatticeEdge(Slab slab, int axis, int x, int y, int z) {
+        if (slab.lower > 0 && axis != slabAxis && getCoord(slabAxis, x, y, z) == slab.lower
+                && isOwnedByPreviousSlab(axis, x, y, z)) {
+            return;
+        }
+        final long key = packEdge(axis, x, y, z);
+        if (!slab.edges.add(key)) {
+            return;
+        }
+        if (style == MeshStyle.MERGED) {
+            if (slab.edgeCount == slab.edgeKeys.length) {
+                slab.edgeKeys = Arrays.copyOf(slab.edgeKeys, slab.edgeKeys.length * 2);
+            }
+            slab.edgeKeys[slab.edgeCount++] = key;
+            return;
+        }
+        addEdgeRun(slab, axis, x, y, z, 1, getEdgeOffsets(axis, x, y, z));
+    }
+
+    /**
+     * For an edge lying on the plane where a slab begins: if either of the
+     * two blocks sharing the edge on the other side of the plane is inside,
+     * the previous slab has already added it.
+     */
+    private boolean isOwnedByPreviousSlab(int axis, int x, int y, int z) {
+        final int other = 3 - axis - slabAxis;
+        final int sx = slabAxis == AXIS_X ? 1 : 0;
+        final int sy = slabAxis == AXIS_Y ? 1 : 0;
+        final int sz = slabAxis == AXIS_Z ? 1 : 0;
+        final int ox = other == AXIS_X ? 1 : 0;
+        final int oy = other == AXIS_Y ? 1 : 0;
+        final int oz = other == AXIS_Z ? 1 : 0;
+        return isInside(x - sx, y - sy, z - sz) || isInside(x - sx - ox, y - sy - oy, z - sz - oz);
+    }
+
+    /**
+     * Output every edge recorded by the slab, joining runs of collinear
+     * edges into a single line. A run continues through lattice points where
+     * other lines cross it, but stops wherever its offset changes (i.e.,
+     * where the surface steps in or out and a perpendicular line turns away
+     * from it).
+     * <p>
+     * Runs also stop at section boundaries, and only join edges belonging to
+     * the same slab, so every run lies inside a single section. Edges are
+     * visited in the order they were first added, so the output is
+     * deterministic.
+     */
+    private void addMergedEdges(Slab slab) {
+        for (int i = 0; i < slab.edgeCount; i++) {
+            if ((i & 0xFFFF) == 0) {
+                MeshBuilder.checkCancelled(build);
+            }
+            final long key = slab.edgeKeys[i];
+            final int axis = (int) (key >>> (KEY_COORD_BITS * 3));
+            final int x = (int) (key >>> (KEY_COORD_BITS * 2)) & KEY_COORD_MASK;
+            final int y = (int) (key >>> KEY_COORD_BITS) & KEY_COORD_MASK;
+            final int z = (int) key & KEY_COORD_MASK;
+            final int dx = axis == AXIS_X ? 1 : 0;
+            final int dy = axis == AXIS_Y ? 1 : 0;
+            final int dz = axis == AXIS_Z ? 1 : 0;
+            final int start = getCoord(axis, x, y, z);
+            final int offsets = getEdgeOffsets(axis, x, y, z);
+            if (start % MeshSection.SIZE != 0
+                    && slab.edges.contains(packEdge(axis, x - dx, y - dy, z - dz))
+                    && getEdgeOffsets(axis, x - dx, y - dy, z - dz) == offsets) {
+                // Output as part of the run containing the previous edge.
+                continue;
+            }
+            int length = 1;
+            while ((start + length) % MeshSection.SIZE != 0
+                    && slab.edges.contains(packEdge(axis, x + dx*length, y + dy*length, z + dz*length))
+                    && getEdgeOffsets(axis, x + dx*length, y + dy*length, z + dz*length) == offsets) {
+                length++;
+            }
+            addEdgeRun(slab, axis, x, y, z, length, offsets);
+        }
+    }
+
+    /**
+     * The four blocks sharing a lattice edge decide where exactly it's drawn.
+     * Along each perpendicular axis the line is nudged by CUBE_MARGIN towards
+     * whichever side has more inside blocks, keeping it off the block
+     * boundary.
+     * 
+     * @return both nudge directions (-1, 0, or 1) packed into a single int,
+     *         for addEdgeRun to unpack.
+     */
+    private int getEdgeOffsets(int axis, int x, int y, int z) {
+        final int a;
+        final int b;
+        if (axis == AXIS_X) {
+            a = balance(isInside(x, y - 1, z - 1), isInside(x, y - 1, z), isInside(x, y, z - 1), isInside(x, y, z));
+            b = balance(isInside(x, y - 1, z - 1), isInside(x, y, z - 1), isInside(x, y - 1, z), isInside(x, y, z));
+        } else if (axis == AXIS_Y) {
+            a = balance(isInside(x - 1, y, z - 1), isInside(x - 1, y, z), isInside(x, y, z - 1), isInside(x, y, z));
+            b = balance(isInside(x - 1, y, z - 1), isInside(x, y, z - 1), isInside(x - 1, y, z), isInside(x, y, z));
+        } else {
+            a = balance(isInside(x - 1, y - 1, z), isInside(x - 1, y, z), isInside(x, y - 1, z), isInside(x, y, z));
+            b = balance(isInside(x - 1, y - 1, z), isInside(x, y - 1, z), isInside(x - 1, y, z), isInside(x, y, z));
+        }
+        return (a + 1) * 3 + (b + 1);
+    }
+
+    /**
+     * Add a single line covering length unit lattice edges along the
+     * specified axis, starting at the lattice point (x,y,z), to the section
+     * containing that lattice point. It's shortened by CUBE_MARGIN at both
+     * ends, the same as a BLOCKS style edge.
+     * <p>
+     * The offsets also decide which detail levels get the line. An edge is
+     * part of a flat face if exactly two of its four blocks are inside and
+     * they're side by side, i.e. it's offset along one perpendicular axis
+     * but not the other. Every other edge is where the surface bends. The
+     * offsets are the same along an entire merged run, and so is the
+     * position across the face, so a run is never split between levels.
+     */
+    private void addEdgeRun(Slab slab, int axis, int x, int y, int z, int length, int offsets) {
+        final int ix = getSectionIndex(AXIS_X, x);
+        final int iy = getSectionIndex(AXIS_Y, y);
+        final int iz = getSectionIndex(AXIS_Z, z);
+        if (!isChanged(slab, ix, iy, iz)) {
+            return;
+        }
+        final VertexArray[] levels = getSectionVertices(slab, ix, iy, iz);
+        final int offsetA = offsets / 3 - 1;
+        final int offsetB = offsets % 3 - 1;
+        final boolean flat = (offsetA == 0) != (offsetB == 0);
+        boolean coarse = true;
+        if (flat) {
+            // The perpendicular axis with no offset runs across the face.
+            final int acrossAxis;
+            if (offsetA == 0) {
+                acrossAxis = axis == AXIS_X ? AXIS_Y : AXIS_X;
+            } else {
+                acrossAxis = axis == AXIS_Z ? AXIS_Y : AXIS_Z;
+            }
+            coarse = getCoord(acrossAxis, x, y, z) % COARSE_GRID_SIZE == 0;
+        }
+
+        final double m = RenderBase.CUBE_MARGIN;
+        final double rx = x - getSectionOrigin(slab, AXIS_X, ix);
+        final double ry = y - getSectionOrigin(slab, AXIS_Y, iy);
+        final double rz = z - getSectionOrigin(slab, AXIS_Z, iz);
+        if (style != MeshStyle.BLOCKS) {
+            addLine(levels[MeshDetail.FULL.ordinal()], axis, rx, ry, rz, length, m * offsetA, m * offsetB);
+        }
+        if (coarse) {
+            addLine(levels[MeshDetail.COARSE.ordinal()], axis, rx, ry, rz, length, m * offsetA, m * offsetB);
+        }
+        if (!flat) {
+            addLine(levels[MeshDetail.OUTLINE.ordinal()], axis, rx, ry, rz, length, m * offsetA, m * offsetB);
+        }
+    }
+
+    private static void addLine(VertexArray out, int axis, double x, double y, double z, int length, double a, double b) {
+        final double m = RenderBase.CUBE_MARGIN;
+        if (axis == AXIS_X) {
+            out.add(x + m, y + a, z + b);
+            out.add(x + length - m, y + a, z + b);
+        } else if (axis == AXIS_Y) {
+            out.add(x + a, y + m, z + b);
+            out.add(x + a, y + length - m, z + b);
+        } else {
+            out.add(x + a, y + b, z + m);
+            out.add(x + a, y + b, z + length - m);
+        }
+    }
+
+    /**
+     * @return -1, 0, or 1 depending on whether more of the negative-side
+     *         blocks (the first two) or positive-side blocks (the last two)
+     *         are inside.
+     */
+    private static int balance(boolean neg0, boolean neg1, boolean pos0, boolean pos1) {
+        int n = (neg0 ? 1 : 0) + (neg1 ? 1 : 0);
+        int p = (pos0 ? 1 : 0) + (pos1 ? 1 : 0);
+        return n < p ? 1 : (n > p ? -1 : 0);
+    }
+}
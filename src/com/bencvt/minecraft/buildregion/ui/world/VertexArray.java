@@ -0,0 +1,136 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+import libshapedraw.MinecraftAccess;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * A growable list of vertices, stored as packed x/y/z floats rather than as
+ * individual Vector3 instances. Large regions can have millions of vertices,
+ * so avoiding an object (plus header) per vertex keeps mesh generation from
+ * churning the garbage collector.
+ * <p>
+ * Vertices are stored at 32-bit precision, the same precision they end up
+ * with in VRAM.
+ * 
+ * @author bencvt
+ */
+public class VertexArray {
+    public static final int INITIAL_CAPACITY = 1024;
+
+    private float[] coords;
+    private int size;
+
+    public VertexArray() {
+        coords = new float[INITIAL_CAPACITY * 3];
+    }
+
+    /** @return the number of vertices, not the number of floats. */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Shrink the backing array to fit, for vertices that are done growing. */
+    public void trimToSize() {
+        if (coords.length > size * 3) {
+            coords = Arrays.copyOf(coords, size * 3);
+        }
+    }
+
+    /** @return the approximate memory used, including unused capacity. */
+    public long getByteSize() {
+        return 16L + coords.length * 4L;
+    }
+
+    public VertexArray add(double x, double y, double z) {
+        if (size * 3 == coords.length) {
+            coords = Arrays.copyOf(coords, Math.max(coords.length * 2, INITIAL_CAPACITY * 3));
+        }
+        final int i = size * 3;
+        coords[i] = (float) x;
+        coords[i + 1] = (float) y;
+        coords[i + 2] = (float) z;
+        size++;
+        return this;
+    }
+
+    /**
+     * Add the four sides of the quad abcd as pairs of vertices: the
+     * equivalent of a GL_LINE_LOOP, for GL_LINES.
+     */
+    public VertexArray addLoop(
+            double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, double dx, double dy, double dz) {
+        add(ax, ay, az).add(bx, by, bz);
+        add(bx, by, bz).add(cx, cy, cz);
+        add(cx, cy, cz).add(dx, dy, dz);
+        add(dx, dy, dz).add(ax, ay, az);
+        return this;
+    }
+
+    public float getX(int index) {
+        return coords[index * 3];
+    }
+
+    public float getY(int index) {
+        return coords[index * 3 + 1];
+    }
+
+    public float getZ(int index) {
+        return coords[index * 3 + 2];
+    }
+
+    /**
+     * @return a new direct buffer containing every vertex, suitable for
+     *         passing to OpenGL.
+     */
+    public FloatBuffer toFloatBuffer() {
+        FloatBuffer buf = BufferUtils.createFloatBuffer(size * 3);
+        buf.put(coords, 0, size * 3);
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * @param quantum the number of fixed point steps per block.
+     * @return a new direct buffer containing every vertex in 16-bit fixed
+     *         point, suitable for passing to OpenGL as GL_SHORTs; or null if
+     *         any coordinate can't be represented exactly.
+     */
+    public ShortBuffer toShortBuffer(int quantum) {
+        final int end = size * 3;
+        ShortBuffer buf = BufferUtils.createShortBuffer(end);
+        for (int i = 0; i < end; i++) {
+            final double scaled = (double) coords[i] * quantum;
+            if (scaled != Math.rint(scaled) || scaled < Short.MIN_VALUE || scaled > Short.MAX_VALUE) {
+                return null;
+            }
+            buf.put((short) scaled);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Send every vertex to OpenGL in immediate mode. The caller is
+     * responsible for calling mc.startDrawing and mc.finishDrawing.
+     */
+    public void addVertices(MinecraftAccess mc) {
+        final int end = size * 3;
+        for (int i = 0; i < end; i += 3) {
+            mc.addVertex(coords[i], coords[i + 1], coords[i + 2]);
+        }
+    }
+}
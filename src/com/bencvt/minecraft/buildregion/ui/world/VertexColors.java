@@ -0,0 +1,68 @@
+package com.bencvt.minecraft.buildregion.ui.world;
+
+import java.nio.ByteBuffer;
+
+import libshapedraw.primitive.ReadonlyColor;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * A color for each vertex of a GeometryBuffer, to be rendered with
+ * GeometryBuffer.renderColored: a single color, with the alpha of each
+ * vertex scaled individually (e.g. faded out towards the edges).
+ * <p>
+ * The colors are only recomputed when the color, the base alpha or the
+ * per-vertex alpha scales change, e.g. while fading in.
+ * 
+ * @author bencvt
+ */
+public class VertexColors {
+    private ByteBuffer buffer;
+    private float[] alphaScales;
+    private int count;
+    private double red;
+    private double green;
+    private double blue;
+    private double alpha;
+
+    /**
+     * @param alphaScales how transparent each vertex is, relative to the
+     *        color's alpha times alphaBase. Must not be modified afterwards.
+     * @param count the number of vertices.
+     * @return the colors, as RGBA unsigned bytes.
+     */
+    public ByteBuffer update(ReadonlyColor color, double alphaBase, float[] alphaScales, int count) {
+        final double a = color.getAlpha() * alphaBase;
+        if (buffer != null &&
+                this.alphaScales == alphaScales &&
+                this.count == count &&
+                red == color.getRed() &&
+                green == color.getGreen() &&
+                blue == color.getBlue() &&
+                alpha == a) {
+            return buffer;
+        }
+        this.alphaScales = alphaScales;
+        this.count = count;
+        red = color.getRed();
+        green = color.getGreen();
+        blue = color.getBlue();
+        alpha = a;
+        if (buffer == null || buffer.capacity() < count * 4) {
+            buffer = BufferUtils.createByteBuffer(count * 4);
+        }
+        final byte r = toByte(red);
+        final byte g = toByte(green);
+        final byte b = toByte(blue);
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            buffer.put(r).put(g).put(b).put(toByte(alpha * alphaScales[i]));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte toByte(double d) {
+        return (byte) Math.round(Math.max(0.0, Math.min(1.0, d)) * 255.0);
+    }
+}